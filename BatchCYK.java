@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * This class checks a batch of words against one compiled CFG on an
+ * Executor. The words are grouped by length. Every group of at least
+ * MIN_SLICED_WORDS words is checked by BitSlicedCYK, 64 words per pass, and
+ * the other words are checked by a Recognizer. The work is handed out in
+ * tasks of at least GRAIN splits, so short words are not checked one task
+ * each. The tasks share only the (read-only) CYKTable and store their
+ * results at the input index of each word.
+ */
+final class BatchCYK {
+	// The minimum number of splits (i.e. calls to combine()) in one task.
+	private static final long GRAIN = 1 << 14;
+	// The minimum number of words of the same length checked by BitSlicedCYK.
+	private static final int MIN_SLICED_WORDS = 8;
+	// The maximum number of longs of a bit-sliced chart.
+	private static final long MAX_SLICED_CHART_SIZE = 1 << 22;
+
+	private final CYKTable t;
+	private final BitSlicedCYK slicedCYK;
+	private final boolean derivesEpsilon;
+	private final Executor executor;
+
+	BatchCYK(CYKTable t, boolean derivesEpsilon, Executor executor) {
+		this.t = t;
+		this.slicedCYK = new BitSlicedCYK(t);
+		this.derivesEpsilon = derivesEpsilon;
+		this.executor = executor;
+	}
+
+	/**
+	 * Start checking words, and return the batch of their results.
+	 */
+	Batch submit(Collection<String> words) {
+		final String[] batch = words.toArray(new String[0]);
+		final int size = batch.length;
+		// Sort the indexes on the word length, keeping equal lengths in order.
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = (long) batch[i].length() << 32 | i;
+		}
+		Arrays.sort(keys);
+		final int[] indexes = new int[size];
+		for (int i = 0; i < size; i++) {
+			indexes[i] = (int) keys[i];
+		}
+
+		final Batch result = new Batch(size);
+		int[] rest = new int[size];
+		int noOfRest = 0;
+		for (int from = 0, to; from < size; from = to) {
+			final int n = batch[indexes[from]].length();
+			for (to = from + 1; to < size && batch[indexes[to]].length() == n; to++)
+				;
+			if (n == 0 || to - from < MIN_SLICED_WORDS
+					|| slicedCYK.chartSize(n) > MAX_SLICED_CHART_SIZE) {
+				for (int x = from; x < to; x++) {
+					rest[noOfRest++] = indexes[x];
+				}
+				continue;
+			}
+			// Every pass costs about n^3 / 6 splits.
+			final int wordsPerTask = (int) Math.min(to - from, BitSlicedCYK.WORDS_PER_PASS
+					* Math.max(1, GRAIN / ((long) n * n * n / 6 + 1)));
+			for (int start = from; start < to; start += wordsPerTask) {
+				final int s = start;
+				final int e = Math.min(to, start + wordsPerTask);
+				result.add(s, e, indexes, CompletableFuture.runAsync(() -> {
+					for (int x = s; x < e; x += BitSlicedCYK.WORDS_PER_PASS) {
+						int end = Math.min(e, x + BitSlicedCYK.WORDS_PER_PASS);
+						long bits = slicedCYK.derives(batch, indexes, x, end);
+						for (int b = 0; b < end - x; b++) {
+							result.results[indexes[x + b]] = (bits & 1L << b) != 0;
+						}
+					}
+				}, executor));
+			}
+		}
+		final int[] restIndexes = rest;
+		for (int start = 0, end; start < noOfRest; start = end) {
+			long splits = 0;
+			for (end = start; end < noOfRest && splits < GRAIN; end++) {
+				long n = batch[restIndexes[end]].length();
+				splits += n * n * n / 6 + 1;
+			}
+			final int s = start;
+			final int e = end;
+			result.add(s, e, restIndexes, CompletableFuture.runAsync(() -> {
+				Recognizer recognizer = new Recognizer(t,
+						batch[restIndexes[e - 1]].length(), derivesEpsilon);
+				for (int x = s; x < e; x++) {
+					result.results[restIndexes[x]] =
+							recognizer.derives(batch[restIndexes[x]]);
+				}
+			}, executor));
+		}
+		return result;
+	}
+
+	/**
+	 * The results of a batch of words, filled in by the tasks checking them.
+	 */
+	static final class Batch {
+		private final boolean[] results;
+		// The task that checks the word at input index i is tasks[taskOf[i]].
+		private final int[] taskOf;
+		private final List<CompletableFuture<Void>> tasks =
+				new ArrayList<CompletableFuture<Void>>();
+
+		private Batch(int size) {
+			results = new boolean[size];
+			taskOf = new int[size];
+		}
+
+		private void add(int from, int to, int[] indexes,
+				CompletableFuture<Void> task) {
+			for (int x = from; x < to; x++) {
+				taskOf[indexes[x]] = tasks.size();
+			}
+			tasks.add(task);
+		}
+
+		/**
+		 * Wait for the word at input index i to be checked, and return it.
+		 */
+		boolean get(int i) {
+			tasks.get(taskOf[i]).join();
+			return results[i];
+		}
+
+		/**
+		 * Wait for every word to be checked, and return the results in input
+		 * order.
+		 */
+		boolean[] join() {
+			for (CompletableFuture<Void> task : tasks) {
+				task.join();
+			}
+			return results;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BatchCYKEfficiencyTest {
+	private static final int LOOP_COUNT = 5;
+	private static final int NO_OF_WORDS = 4096;
+	private static final int I_MAX = 256;
+
+	public static void main(String[] args) {
+		CFG cfg = new CFG();
+		cfg.addRule("S -> AA");
+		cfg.addRule("S -> a");
+		cfg.addRule("S -> b");
+		cfg.addRule("A -> a");
+		cfg.addRule("A -> b");
+		cfg.addRule("A -> AA");
+		System.out.println("Throughput test on the following CFG:");
+		System.out.println(cfg.toString());
+		System.out.println("Available processors: "
+				+ Runtime.getRuntime().availableProcessors());
+		System.out.println();
+
+		// Test words with random letters.
+		System.out.println("Test with words containing random letters");
+		test(cfg, "abcdefghijklmnopqrstuvwxyz");
+		System.out.println();
+
+		// Test words with random letters "a" and "b", which are all derivable.
+		System.out.println("Test with words containing random 'a' and 'b'");
+		test(cfg, "ab");
+		System.out.println();
+
+		// Test words with random letters "a" and "c", which are not derivable
+		// but only fail at the first "c".
+		System.out.println("Test with words containing random 'a' and 'c'");
+		test(cfg, "ac");
+		System.out.println();
+	}
+
+	/**
+	 * Compare derives() in a loop with derivesAll() on batches of
+	 * NO_OF_WORDS words of random letters of the given alphabet.
+	 */
+	private static void test(CFG cfg, String alphabet) {
+		char[] chars = alphabet.toCharArray();
+		Random random = new Random();
+		for (int i = 16; i <= I_MAX; i *= 2) {
+			List<String> words = new ArrayList<String>();
+			for (int j = 0; j < NO_OF_WORDS; j++) {
+				StringBuilder word = new StringBuilder();
+				for (int k = 0; k < i; k++) {
+					word.append(chars[random.nextInt(chars.length)]);
+				}
+				words.add(word.toString());
+			}
+			long loopTime = 0;
+			long batchTime = 0;
+			for (int j = 0; j < LOOP_COUNT; j++) {
+				long startTime = System.nanoTime();
+				for (String word : words) {
+					cfg.derives(word);
+				}
+				loopTime += System.nanoTime() - startTime;
+				startTime = System.nanoTime();
+				cfg.derivesAll(words);
+				batchTime += System.nanoTime() - startTime;
+			}
+			System.out.println("Word length: " + i + ", derives(): "
+					+ (NO_OF_WORDS * LOOP_COUNT * 1000000000L / loopTime)
+					+ " words/s, derivesAll(): "
+					+ (NO_OF_WORDS * LOOP_COUNT * 1000000000L / batchTime)
+					+ " words/s");
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BinaryNormalFormCorrectnessTest {
+
+	@Test
+	public void unitAndEpsilonRulesShouldBeKept() {
+		CFG g = new CFG();
+		g.addRule("S -> A");
+		g.addRule("A -> aB");
+		g.addRule("B -> epsilon");
+		g.addRule("B -> b");
+		CFG h = g.toBinaryNormalForm();
+		assertTrue(h.containsRule("S -> A"));
+		assertTrue(h.containsRule("B -> epsilon"));
+		assertEquals(5, h.noOfRules());
+		assertFalse(g.isInBinaryNormalForm());
+		assertTrue(h.isInBinaryNormalForm());
+	}
+
+	@Test
+	public void unitRulesShouldBeFollowed() {
+		CFG g = new CFG();
+		g.addRule("S -> A");
+		g.addRule("A -> B");
+		g.addRule("B -> S");
+		g.addRule("B -> AA");
+		g.addRule("A -> a");
+		g = g.toBinaryNormalForm();
+		assertTrue(g.derives("a", CFG.Algorithm.CYK_2NF));
+		assertTrue(g.derives("aaa", CFG.Algorithm.CYK_2NF));
+		assertFalse(g.derives("", CFG.Algorithm.CYK_2NF));
+		assertFalse(g.derives("ab", CFG.Algorithm.CYK_2NF));
+	}
+
+	@Test
+	public void nullableNonterminalsShouldBeSkipped() {
+		CFG g = new CFG();
+		g.addRule("S -> ASA");
+		g.addRule("S -> b");
+		g.addRule("A -> epsilon");
+		g.addRule("A -> a");
+		g = g.toBinaryNormalForm();
+		assertTrue(g.derives("b", CFG.Algorithm.CYK_2NF));
+		assertTrue(g.derives("ab", CFG.Algorithm.CYK_2NF));
+		assertTrue(g.derives("ba", CFG.Algorithm.CYK_2NF));
+		assertTrue(g.derives("aaaba", CFG.Algorithm.CYK_2NF));
+		assertFalse(g.derives("", CFG.Algorithm.CYK_2NF));
+		assertFalse(g.derives("bb", CFG.Algorithm.CYK_2NF));
+	}
+
+	@Test
+	public void emptyWordShouldNeedNullableStartSymbol() {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("A -> epsilon");
+		g.addRule("B -> A");
+		g = g.toBinaryNormalForm();
+		assertTrue(g.derives("", CFG.Algorithm.CYK_2NF));
+		assertFalse(g.derives("a", CFG.Algorithm.CYK_2NF));
+	}
+
+	@Test
+	public void sizeShouldStayLinear() {
+		CFG g = new CFG();
+		g.addRule("S -> S0");
+		for (int k = 0; k < 1000; k++) {
+			g.addRule("S" + k + " -> S" + (k + 1));
+			g.addRule("S" + k + " -> aS" + k + "b");
+			g.addRule("S" + k + " -> epsilon");
+		}
+		CFG h = g.toBinaryNormalForm();
+		assertTrue(h.isInBinaryNormalForm());
+		assertTrue(h.size() <= 3 * g.size());
+		assertTrue(h.derives("aabb", CFG.Algorithm.CYK_2NF));
+		assertFalse(h.derives("aab", CFG.Algorithm.CYK_2NF));
+	}
+
+	/**
+	 * Return a CFG of 1 to 10 random rules over S, A, B, C, a and b, with
+	 * bodies of 1 to 4 symbols, or epsilon with probability 1/5.
+	 */
+	private static CFG createRandomCFG(Random random) {
+		String[] names = {"S", "A", "B", "C"};
+		CFG g = new CFG();
+		for (int k = random.nextInt(10); k >= 0; k--) {
+			StringBuilder body = new StringBuilder();
+			if (random.nextInt(5) == 0) {
+				body.append("epsilon");
+			} else {
+				for (int i = random.nextInt(4); i >= 0; i--) {
+					int c = random.nextInt(6);
+					body.append(c < 2 ? "ab".charAt(c) + "" : names[c - 2]);
+				}
+			}
+			g.addRule(names[random.nextInt(names.length)] + " -> " + body);
+		}
+		return g;
+	}
+
+	/**
+	 * Return every word over a and b of length at most maxLength.
+	 */
+	private static String[] createAllWords(int maxLength) {
+		String[] words = new String[(1 << (maxLength + 1)) - 1];
+		for (int i = 1; i <= words.length; i++) {
+			words[i - 1] = Integer.toBinaryString(i).substring(1)
+					.replace('0', 'a').replace('1', 'b');
+		}
+		return words;
+	}
+
+	@Test
+	public void shouldAgreeWithEarley() {
+		Random random = new Random(1);
+		String[] words = createAllWords(5);
+		for (int n = 0; n < 500; n++) {
+			CFG g = createRandomCFG(random);
+			CFG binary = g.toBinaryNormalForm();
+			assertTrue(binary.isInBinaryNormalForm());
+			for (String word : words) {
+				assertEquals(g + word, g.derives(word, CFG.Algorithm.EARLEY),
+						binary.derives(word, CFG.Algorithm.CYK_2NF));
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+import java.util.Random;
+
+public class BinaryNormalFormEfficiencyTest {
+
+	public static void main(String[] args) {
+		System.out.println("Comparing toCNF() and derives() with "
+				+ "toBinaryNormalForm() and derives(word, CYK_2NF):");
+
+		System.out.println("\nTesting randomly built rules, on 20 random words "
+				+ "of length 64:");
+		for (int i = 8000; i <= 32000; i *= 2) {
+			CFG g = RandomCFGGenerator.createRandomCFG(i);
+			Random random = new Random(1);
+			String[] words = new String[20];
+			for (int j = 0; j < words.length; j++) {
+				StringBuilder word = new StringBuilder();
+				for (int k = 0; k < 64; k++) {
+					word.append((char) ('a' + random.nextInt(26)));
+				}
+				words[j] = word.toString();
+			}
+			test(g, words);
+		}
+
+		System.out.println("\nTesting a chain of unit rules with a nullable "
+				+ "body at every link, on 20 words of length 64:");
+		for (int i = 500; i <= 2000; i *= 2) {
+			CFG g = new CFG();
+			g.addRule("S -> S0");
+			for (int k = 0; k < i; k++) {
+				g.addRule("S" + k + " -> S" + (k + 1));
+				g.addRule("S" + k + " -> aS" + k + "b");
+				g.addRule("S" + k + " -> A" + k + "S" + k);
+				g.addRule("A" + k + " -> epsilon");
+				g.addRule("A" + k + " -> c");
+			}
+			g.addRule("S" + i + " -> c");
+			String[] words = new String[20];
+			for (int j = 0; j < words.length; j++) {
+				StringBuilder word = new StringBuilder();
+				for (int k = 0; k < 32; k++) {
+					word.append(k < j ? 'a' : 'c');
+				}
+				for (int k = 0; k < 32; k++) {
+					word.append(k < j ? 'b' : 'c');
+				}
+				words[j] = word.toString();
+			}
+			test(g, words);
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Print the conversion time, size and average derives() time of both
+	 * normal forms of g.
+	 */
+	private static void test(CFG g, String[] words) {
+		for (boolean binary : new boolean[] {false, true}) {
+			long startTime = System.nanoTime();
+			CFG h = binary ? g.toBinaryNormalForm() : g.toCNF();
+			long convertTime = System.nanoTime() - startTime;
+			CFG.Algorithm algorithm = binary ? CFG.Algorithm.CYK_2NF
+					: CFG.Algorithm.CYK;
+			h.derives("a", algorithm);
+			long derivesTime = 0;
+			for (String word : words) {
+				startTime = System.nanoTime();
+				h.derives(word, algorithm);
+				derivesTime += System.nanoTime() - startTime;
+			}
+			System.out.println("Size of the CFG: " + g.size() + ", "
+					+ (binary ? "2NF" : "CNF") + " time: " + (convertTime / 1000000)
+					+ " ms, Size: " + h.size() + ", Nonterminals: "
+					+ h.freeze().noOfNonterminals() + ", Average derives() time: "
+					+ (derivesTime / 1000000 / words.length) + " ms");
+		}
+	}
+}
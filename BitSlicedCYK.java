@@ -0,0 +1,145 @@
+/**
+ * This class checks up to 64 words of the same length at once with the CYK
+ * algorithm. The chart is bit-sliced: for every cell (i, j) and nonterminal
+ * A there is one long, whose bit b is set iff A derives word[j..j+i] of the
+ * b-th word. A rule A -> BC is then applied to all the words at once with one
+ * AND and one OR, so one pass over the chart decides all of them.
+ *
+ * Every cell also holds one extra long, the OR of its nonterminals, i.e. the
+ * words for which the span derives anything. Splits where no word has both
+ * halves derivable are skipped. Words with a symbol that no nonterminal
+ * produces are dropped before the chart is filled, and a cell is done as
+ * soon as every head of a binary rule derives the span for all other words.
+ */
+final class BitSlicedCYK {
+	static final int WORDS_PER_PASS = 64;
+
+	private final CYKTable t;
+	// The pairs (B, C) and the heads A of the rules A -> BC, where the heads
+	// of pair p are heads[headStart[p]..headStart[p+1]-1].
+	private final int[] pairLeft;
+	private final int[] pairRight;
+	private final int[] headStart;
+	private final int[] heads;
+	private final int[] binaryHeads;
+
+	BitSlicedCYK(CYKTable t) {
+		this.t = t;
+		final int noOfPairs = t.pairRight.length;
+		pairLeft = t.pairLeft;
+		pairRight = t.pairRight;
+		headStart = new int[noOfPairs + 1];
+		for (int p = 0; p < noOfPairs; p++) {
+			int count = 0;
+			for (int x = 0; x < t.w; x++) {
+				count += Long.bitCount(t.pairHeads[p * t.w + x]);
+			}
+			headStart[p + 1] = headStart[p] + count;
+		}
+		heads = new int[headStart[noOfPairs]];
+		for (int p = 0, h = 0; p < noOfPairs; p++) {
+			for (int x = 0; x < t.w; x++) {
+				long bits = t.pairHeads[p * t.w + x];
+				for (; bits != 0; bits &= bits - 1) {
+					heads[h++] = (x << 6) + Long.numberOfTrailingZeros(bits);
+				}
+			}
+		}
+		int noOfBinaryHeads = 0;
+		for (int x = 0; x < t.w; x++) {
+			noOfBinaryHeads += Long.bitCount(t.binaryHeads[x]);
+		}
+		binaryHeads = new int[noOfBinaryHeads];
+		for (int x = 0, h = 0; x < t.w; x++) {
+			for (long bits = t.binaryHeads[x]; bits != 0; bits &= bits - 1) {
+				binaryHeads[h++] = (x << 6) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of longs of the chart for words of length n.
+	 */
+	long chartSize(int n) {
+		return (long) n * (n + 1) / 2 * (t.r + 1);
+	}
+
+	/**
+	 * Check the words batch[indexes[from..to-1]], which must all have the
+	 * same length n > 0, and at most WORDS_PER_PASS of them. Return the
+	 * results as a bitset, where bit b is the result of batch[indexes[from+b]].
+	 */
+	long derives(String[] batch, int[] indexes, int from, int to) {
+		final int n = batch[indexes[from]].length();
+		final int r = t.r;
+		// The words whose every symbol is produced by some nonterminal.
+		long alive = to - from == 64 ? -1L : (1L << (to - from)) - 1;
+		for (int b = 0; b < to - from; b++) {
+			String word = batch[indexes[from + b]];
+			for (int j = 0; j < n && (alive & 1L << b) != 0; j++) {
+				if (t.terminal(word.charAt(j)) == null) {
+					alive &= ~(1L << b);
+				}
+			}
+		}
+		if (alive == 0) {
+			return 0;
+		}
+		CYKChart chart = new CYKChart(n, r + 1);
+		final long[] cells = chart.cells;
+		for (int b = 0; b < to - from; b++) {
+			if ((alive & 1L << b) == 0) {
+				continue;
+			}
+			String word = batch[indexes[from + b]];
+			for (int j = 0; j < n; j++) {
+				long[] nts = t.terminal(word.charAt(j));
+				int cell = chart.offset(0, j);
+				for (int x = 0; x < t.w; x++) {
+					for (long bits = nts[x]; bits != 0; bits &= bits - 1) {
+						int a = (x << 6) + Long.numberOfTrailingZeros(bits);
+						cells[cell + a] |= 1L << b;
+					}
+				}
+				cells[cell + r] |= 1L << b;
+			}
+		}
+		for (int i = 1; i < n; i++) {
+			for (int j = 0; j < n - i; j++) {
+				int cell = chart.offset(i, j);
+				long any = 0;
+				for (int k = 0; k < i && !isSaturated(cells, cell, alive); k++) {
+					int left = chart.offset(k, j);
+					int right = chart.offset(i - k - 1, j + k + 1);
+					if ((cells[left + r] & cells[right + r]) == 0) {
+						continue;
+					}
+					for (int p = 0; p < pairLeft.length; p++) {
+						long v = cells[left + pairLeft[p]] & cells[right + pairRight[p]];
+						if (v != 0) {
+							for (int h = headStart[p]; h < headStart[p + 1]; h++) {
+								cells[cell + heads[h]] |= v;
+							}
+							any |= v;
+						}
+					}
+				}
+				cells[cell + r] = any;
+			}
+		}
+		return cells[chart.offset(n - 1, 0) + t.startSymbolID];
+	}
+
+	/**
+	 * Check if every head of a binary rule derives the span of cell for
+	 * every word of alive, so no split can add anything to it.
+	 */
+	private boolean isSaturated(long[] cells, int cell, long alive) {
+		for (int a : binaryHeads) {
+			if (cells[cell + a] != alive) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,235 @@
+import java.util.Arrays;
+
+/**
+ * This class stores the distinct rule bodies of a CFG and gives each one an
+ * integer ID. The symbols of all bodies are stored one after the other in a
+ * single int array, where body b is symbols[start[b]..start[b]+lengths[b]-1].
+ * Bodies are deduplicated with an open addressing hash table of body IDs, so
+ * a body costs its symbols plus a few ints, and no objects.
+ *
+ * Every body counts the rules it is used by. A body whose count drops to 0 is
+ * removed from the hash table, and its ID is put on a free list to be handed
+ * out again by intern(). The symbols of removed bodies are left in place
+ * until they make up about half of the symbol array, which is then
+ * compacted, so removing a body costs amortized constant time like adding
+ * one.
+ */
+final class BodyTable {
+	private int[] symbols = new int[256];
+	// The number of elements of symbols in use, and how many of them belong
+	// to removed bodies.
+	private int noOfSymbols;
+	private int noOfGarbageSymbols;
+	private int[] start = new int[64];
+	private int[] lengths = new int[64];
+	private int[] hashes = new int[64];
+	private int[] refs = new int[64];
+	private int noOfBodies;
+	// The IDs of removed bodies, to be handed out again.
+	private final IntStack freeIDs = new IntStack();
+	// slots[s] is 0 for a free slot, or the ID + 1 of the body stored there.
+	private int[] slots = new int[128];
+
+	/**
+	 * Return the number of body IDs handed out, including those of removed
+	 * bodies, which have length 0 until they are handed out again.
+	 */
+	int size() {
+		return noOfBodies;
+	}
+
+	/**
+	 * Return the number of symbols of the body with the given ID.
+	 */
+	int length(int bodyID) {
+		return lengths[bodyID];
+	}
+
+	/**
+	 * Return symbol i of the body with the given ID.
+	 */
+	int symbol(int bodyID, int i) {
+		return symbols[start[bodyID] + i];
+	}
+
+	/**
+	 * Return the number of rules using the body with the given ID.
+	 */
+	int refs(int bodyID) {
+		return refs[bodyID];
+	}
+
+	/**
+	 * Count one more rule using the body with the given ID.
+	 */
+	void retain(int bodyID) {
+		refs[bodyID]++;
+	}
+
+	/**
+	 * Count one less rule using the body with the given ID, and remove the
+	 * body once no rule uses it.
+	 */
+	void release(int bodyID) {
+		if (--refs[bodyID] > 0) {
+			return;
+		}
+		removeSlot(slot(bodyID));
+		noOfGarbageSymbols += lengths[bodyID];
+		lengths[bodyID] = 0;
+		freeIDs.push(bodyID);
+		// Compacting takes time linear in noOfSymbols + noOfBodies, which is
+		// then at most twice the garbage it reclaims.
+		if (noOfGarbageSymbols > 64
+				&& 2 * noOfGarbageSymbols > noOfSymbols + noOfBodies) {
+			compact();
+		}
+	}
+
+	/**
+	 * Return the ID of the body body[0..length-1], adding it if it does not
+	 * already exist. A new body is not used by any rule until retain() is
+	 * called.
+	 */
+	int intern(int[] body, int length) {
+		int hash = hash(body, length);
+		int slot = slot(body, length, hash);
+		if (slots[slot] != 0) {
+			return slots[slot] - 1;
+		}
+		int bodyID;
+		if (!freeIDs.isEmpty()) {
+			bodyID = freeIDs.pop();
+		} else {
+			if (noOfBodies == hashes.length) {
+				int capacity = 2 * noOfBodies;
+				hashes = Arrays.copyOf(hashes, capacity);
+				start = Arrays.copyOf(start, capacity);
+				lengths = Arrays.copyOf(lengths, capacity);
+				refs = Arrays.copyOf(refs, capacity);
+			}
+			bodyID = noOfBodies++;
+		}
+		if (noOfSymbols + length > symbols.length) {
+			symbols = Arrays.copyOf(symbols, Math.max(2 * symbols.length,
+					noOfSymbols + length));
+		}
+		System.arraycopy(body, 0, symbols, noOfSymbols, length);
+		start[bodyID] = noOfSymbols;
+		lengths[bodyID] = length;
+		noOfSymbols += length;
+		hashes[bodyID] = hash;
+		slots[slot] = bodyID + 1;
+		if (2 * (noOfBodies - freeIDs.size()) > slots.length) {
+			rehash();
+		}
+		return bodyID;
+	}
+
+	/**
+	 * Return the ID of the body body[0..length-1], or -1 if it does not
+	 * exist.
+	 */
+	int find(int[] body, int length) {
+		return slots[slot(body, length, hash(body, length))] - 1;
+	}
+
+	/**
+	 * Return the slot of the given body, or the free slot where it belongs.
+	 */
+	private int slot(int[] body, int length, int hash) {
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] != 0 && !equals(slots[slot] - 1, body, length, hash)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Return the slot of the body with the given ID.
+	 */
+	private int slot(int bodyID) {
+		int mask = slots.length - 1;
+		int slot = hashes[bodyID] & mask;
+		while (slots[slot] != bodyID + 1) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Free the given slot, and move back the bodies after it that would no
+	 * longer be found past the hole, so that no tombstones are needed.
+	 */
+	private void removeSlot(int hole) {
+		int mask = slots.length - 1;
+		for (int slot = (hole + 1) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int home = hashes[slots[slot] - 1] & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				slots[hole] = slots[slot];
+				hole = slot;
+			}
+		}
+		slots[hole] = 0;
+	}
+
+	/**
+	 * Check if the body with the given ID is body[0..length-1].
+	 */
+	private boolean equals(int bodyID, int[] body, int length, int hash) {
+		if (hashes[bodyID] != hash || lengths[bodyID] != length) {
+			return false;
+		}
+		for (int i = 0, y = start[bodyID]; i < length; i++, y++) {
+			if (symbols[y] != body[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Double the hash table.
+	 */
+	private void rehash() {
+		slots = new int[2 * slots.length];
+		int mask = slots.length - 1;
+		for (int bodyID = 0; bodyID < noOfBodies; bodyID++) {
+			if (lengths[bodyID] == 0) {
+				continue;
+			}
+			int slot = hashes[bodyID] & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = bodyID + 1;
+		}
+	}
+
+	/**
+	 * Copy the symbols of the bodies that have not been removed to a new
+	 * array, keeping their IDs.
+	 */
+	private void compact() {
+		int[] compacted = new int[Math.max(256, 2 * (noOfSymbols - noOfGarbageSymbols))];
+		int y = 0;
+		for (int bodyID = 0; bodyID < noOfBodies; bodyID++) {
+			System.arraycopy(symbols, start[bodyID], compacted, y, lengths[bodyID]);
+			start[bodyID] = y;
+			y += lengths[bodyID];
+		}
+		symbols = compacted;
+		noOfSymbols = y;
+		noOfGarbageSymbols = 0;
+	}
+
+	private static int hash(int[] body, int length) {
+		int hash = length;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + body[i];
+		}
+		hash *= 0x9E3779B9;
+		return hash ^ hash >>> 16;
+	}
+}
@@ -0,0 +1,48 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class is a reusable CharSequence holding a line of bytes, one char per
+ * byte (i.e. ASCII or ISO-8859-1 text). set() copies the next line into it
+ * with a single bulk get, so one instance can be used for every line of a
+ * file and charAt() is a plain array access.
+ */
+final class ByteCharSequence implements CharSequence {
+	private byte[] bytes = new byte[256];
+	private int length;
+
+	/**
+	 * Make this a copy of buf[start..start+length-1].
+	 */
+	void set(ByteBuffer buf, int start, int length) {
+		if (length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length));
+		}
+		buf.get(start, bytes, 0, length);
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char) (bytes[index] & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		char[] chars = new char[to - from];
+		for (int i = from; i < to; i++) {
+			chars[i - from] = charAt(i);
+		}
+		return new String(chars);
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length).toString();
+	}
+}
@@ -1,9 +1,19 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Stack;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * This class represents a context-free grammar. Available actions for a CFG 
@@ -18,42 +28,61 @@ import java.util.Stack;
  *
  */
 public class CFG {
+	/**
+	 * The algorithms that can be used to check if a word can be derived.
+	 */
+	public enum Algorithm {
+		CYK, PARALLEL_CYK, VALIANT, EARLEY, SPARSE, CYK_2NF
+	}
+
+	/**
+	 * The symbol ID of epsilon, for addRule(int, int[]).
+	 */
+	public static final int EPSILON = -1;
+
 	// These variables are always up to date.
 	private ArrayList<HashSet<Integer>> rules;
-	private ArrayList<ArrayList<Integer>> bodies;
-	private ArrayList<String> nts;
-	private HashMap<ArrayList<Integer>, Integer> bodiesMap;
-	private HashMap<String, Integer> ntsMap;
+	private BodyTable bodies;
+	private SymbolTable nts;
 	private int startSymbolID;
 	private int epsilonID;
 	private int noOfRules;
 	private int size;
+	// The symbol IDs of the body being added or looked up.
+	private int[] bodyBuffer = new int[16];
 	
 	// These variables might need to be updated or reset before used.
-	private ArrayList<HashSet<Integer>> rulesInv;
-	private ArrayList<ArrayList<Integer>> bodiesInv;
 	private boolean[] hasVisitedSymbol;
 	private boolean[] hasVisitedBody;
 	private boolean[] isReachable;
 	private boolean[] isStacked;
-	private int[] bodySymbolCount;
-	private int[] ntUnitRuleCount;
 	private int[] scc;
 	private int[] indexes;
 	private int index;
 	private int[] lowLink;
-	private Stack<Integer> stack;
+	private IntStack stack;
+	// The roots of the strongly connected components found by findSCC(), in
+	// the order they were found, i.e. every component after those that it
+	// has unit rules to.
+	private IntStack sccRoots;
+	private CYKTable cykTable;
+	private UnitClosure unitClosure;
+	private UsefulSymbols usefulSymbols;
+	private EarleyRecognizer earleyRecognizer;
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private int parallelismThreshold = 512;
+	private Executor executor = ForkJoinPool.commonPool();
+	// The maximum number of bytes of a file that load() maps at once.
+	private static final long MAX_MAPPED_BYTES = 1 << 30;
 
 	/**
 	 * Construct an empty CFG.
 	 */
 	public CFG() {
 		rules = new ArrayList<HashSet<Integer>>();
-		bodies = new ArrayList<ArrayList<Integer>>();
-		bodiesMap = new HashMap<ArrayList<Integer>, Integer>();
-		nts = new ArrayList<String>();
-		ntsMap = new HashMap<String, Integer>();
-		startSymbolID = addNonterminal("S");
+		bodies = new BodyTable();
+		nts = new SymbolTable();
+		startSymbolID = addNonterminal("S", 0, 1);
 		epsilonID = -1;
 		noOfRules = size = 0;
 	}
@@ -62,91 +91,221 @@ public class CFG {
 	 * Add a new rule to this CFG (unless it already exists). The parameter
 	 * takes the form "A -> X" where A is a nonterminal and X is a sequence of
 	 * symbols (e.g. "B1 -> aAbB1c"). This method executes in constant time.
+	 * The rule is scanned in one pass, and only the names of new nonterminals
+	 * are copied into Strings.
+	 */
+	public void addRule(CharSequence rule) {
+		int arrow = CFGParser.findArrow(rule);
+		int lhsID = addNonterminal(rule, CFGParser.trimStart(rule, 0, arrow),
+				CFGParser.trimEnd(rule, 0, arrow));
+		int length = parseBody(rule, arrow + 2, true);
+		if (length == 0) {
+			throw new IllegalArgumentException("Empty body, use epsilon: " + rule);
+		}
+		addRule(lhsID, bodyBuffer, length);
+	}
+
+	/**
+	 * Add the rule lhs -> body to this CFG (unless it already exists), where
+	 * lhs is a nonterminal ID returned by nonterminal(), and body holds
+	 * nonterminal IDs, terminal IDs returned by terminal(), or only EPSILON.
+	 */
+	public void addRule(int lhs, int[] body) {
+		checkRule(lhs, body);
+		addRule(lhs, body, body.length);
+	}
+
+	/**
+	 * Add the rule lhsID -> body[0..length-1]. The array body is copied if
+	 * the body is new, so bodyBuffer can be passed.
 	 */
-	public void addRule(String rule) {
-		String lhs = CFGParser.getLeftHandSide(rule);
-		String rhs = CFGParser.getRightHandSide(rule);
-		int lhsID = addNonterminal(lhs);
-		String[] bodySymbols = CFGParser.splitIntoSymbols(rhs);
-		ArrayList<Integer> body = new ArrayList<Integer>();
-		for (int i = 0; i < bodySymbols.length; i++) {
-			if (isEpsilon(bodySymbols[i])) {
-				body.add(epsilonID);
-			} else if (isTerminal(bodySymbols[i])) {
-				body.add(CFGParser.terminalToInt(bodySymbols[i]));
-			} else {
-				int ntID = addNonterminal(bodySymbols[i]);
-				body.add(ntID);
+	private void addRule(int lhsID, int[] body, int length) {
+		int noOfBodies = bodies.size();
+		int bodyID = bodies.intern(body, length);
+		if (bodyID < noOfBodies && bodies.refs(bodyID) == 0
+				&& usefulSymbols != null) {
+			// The ID of a removed body is handed out again, so the useful
+			// symbols have counted it with its old symbols.
+			usefulSymbols.resetBody(bodyID);
+		}
+		if (addRule(lhsID, bodyID)) {
+			resetCompiledForms();
+			if (usefulSymbols != null) {
+				usefulSymbols.addRule(lhsID, bodyID);
 			}
 		}
-		int bodyID = addBody(body);
-		if (!rules.get(lhsID).contains(bodyID)) {
-			rules.get(lhsID).add(bodyID);
-			noOfRules++;
-			size += 1 + body.size();
+	}
+
+	/**
+	 * Add the rule lhsID -> bodyID unless it already exists, and count it
+	 * in noOfRules, size and the references of the body. Return true iff the
+	 * rule was added.
+	 */
+	private boolean addRule(int lhsID, int bodyID) {
+		if (!rules.get(lhsID).add(bodyID)) {
+			return false;
 		}
+		bodies.retain(bodyID);
+		noOfRules++;
+		size += 1 + bodies.length(bodyID);
+		return true;
 	}
 
 	/**
-	 * Add a nonterminal to this CFG (unless it already exists) and return its
-	 * integer ID. This method is used by addRule().
+	 * Remove a rule from this CFG (if it exists), and return true iff it
+	 * existed. The parameter takes the same form as in addRule(CharSequence).
+	 * Like adding a rule, this executes in constant time: a body that is no
+	 * longer used by any rule is reclaimed, and the compiled forms of the
+	 * rules are dropped, to be rebuilt when they are next needed. The useful
+	 * symbols are updated in place, and only those that depended on the
+	 * removed rule are derived again. The
+	 * nonterminals of the rule are kept, even if no rule uses them anymore.
 	 */
-	private int addNonterminal(String nonterminal) {
-		int ntID;
-		if (ntsMap.containsKey(nonterminal)) {
-			ntID = ntsMap.get(nonterminal);
-		} else {
-			ntID = nts.size();
-			nts.add(ntID, nonterminal);
-			ntsMap.put(nonterminal, ntID);
-			rules.add(ntID, new HashSet<Integer>());
+	public boolean removeRule(CharSequence rule) {
+		int arrow = CFGParser.findArrow(rule);
+		int ntID = nts.find(rule, CFGParser.trimStart(rule, 0, arrow),
+				CFGParser.trimEnd(rule, 0, arrow));
+		if (ntID == -1) {
+			return false;
+		}
+		int length = parseBody(rule, arrow + 2, false);
+		return length > 0 && removeRule(ntID, bodyBuffer, length);
+	}
+
+	/**
+	 * Remove the rule lhs -> body, given as symbol IDs like in
+	 * addRule(int, int[]), and return true iff it existed.
+	 */
+	public boolean removeRule(int lhs, int[] body) {
+		checkRule(lhs, body);
+		return removeRule(lhs, body, body.length);
+	}
+
+	private boolean removeRule(int lhsID, int[] body, int length) {
+		int bodyID = bodies.find(body, length);
+		if (bodyID == -1 || !rules.get(lhsID).remove(bodyID)) {
+			return false;
+		}
+		noOfRules--;
+		size -= 1 + length;
+		if (usefulSymbols != null) {
+			usefulSymbols.removeRule(lhsID, bodyID);
+		}
+		bodies.release(bodyID);
+		resetCompiledForms();
+		return true;
+	}
+
+	/**
+	 * Convert the symbols of rule[from..] to symbol IDs in bodyBuffer, and
+	 * return their number. Nonterminals that do not already exist are added
+	 * if add is true, and otherwise -1 is returned.
+	 */
+	private int parseBody(CharSequence rule, int from, boolean add) {
+		int start = CFGParser.trimStart(rule, from, rule.length());
+		int end = CFGParser.trimEnd(rule, start, rule.length());
+		if (CFGParser.isEpsilon(rule, start, end)) {
+			bodyBuffer[0] = epsilonID;
+			return 1;
+		}
+		int length = 0;
+		for (int i = start, next; i < end; i = next) {
+			next = CFGParser.symbolEnd(rule, i, end);
+			if (length == bodyBuffer.length) {
+				bodyBuffer = Arrays.copyOf(bodyBuffer, 2 * length);
+			}
+			char c = rule.charAt(i);
+			if (!Character.isUpperCase(c)) {
+				bodyBuffer[length++] = CFGParser.terminalToInt(c);
+			} else if (add) {
+				bodyBuffer[length++] = addNonterminal(rule, i, next);
+			} else if ((bodyBuffer[length++] = nts.find(rule, i, next)) == -1) {
+				return -1;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Add a nonterminal named s[start..end-1] to this CFG (unless it already
+	 * exists) and return its integer ID.
+	 */
+	private int addNonterminal(CharSequence s, int start, int end) {
+		int ntID = nts.add(s, start, end);
+		if (ntID == rules.size()) {
+			rules.add(new HashSet<Integer>());
 		}
 		return ntID;
 	}
 
 	/**
-	 * Add a rule body to this CFG (unless it already exists) and return its
-	 * integer ID. This method is used by addRule().
+	 * Return the ID of the nonterminal with the given name, adding it to this
+	 * CFG if it does not already exist. The ID can be used as a symbol in
+	 * addRule(int, int[]).
 	 */
-	private int addBody(ArrayList<Integer> body) {
-		int bodyID;
-		if (bodiesMap.containsKey(body)) {
-			bodyID = bodiesMap.get(body);
-		} else {
-			bodyID = bodies.size();
-			bodies.add(bodyID, body);
-			bodiesMap.put(body, bodyID);
+	public int nonterminal(CharSequence name) {
+		if (name.length() == 0 || !Character.isUpperCase(name.charAt(0))) {
+			throw new IllegalArgumentException("Not a nonterminal: " + name);
+		}
+		return addNonterminal(name, 0, name.length());
+	}
+
+	/**
+	 * Return the ID of the terminal c, to be used as a symbol in
+	 * addRule(int, int[]).
+	 */
+	public static int terminal(char c) {
+		if (Character.isUpperCase(c)) {
+			throw new IllegalArgumentException("Not a terminal: " + c);
 		}
-		return bodyID;
+		return CFGParser.terminalToInt(c);
 	}
 
 	/**
 	 * Check if this CFG contains the given rule. 
 	 */
-	public boolean containsRule(String rule) {
-		String lhs = CFGParser.getLeftHandSide(rule);
-		String rhs = CFGParser.getRightHandSide(rule);
-		if (!ntsMap.containsKey(lhs)) {
+	public boolean containsRule(CharSequence rule) {
+		int arrow = CFGParser.findArrow(rule);
+		int ntID = nts.find(rule, CFGParser.trimStart(rule, 0, arrow),
+				CFGParser.trimEnd(rule, 0, arrow));
+		if (ntID == -1) {
 			return false;
 		}
-		int ntID = ntsMap.get(lhs);
-		String[] bodySymbols = CFGParser.splitIntoSymbols(rhs);
-		ArrayList<Integer> body = new ArrayList<Integer>();
-		for (int i = 0; i < bodySymbols.length; i++) {
-			if (isEpsilon(bodySymbols[i])) {
-				body.add(epsilonID);
-			} else if (isTerminal(bodySymbols[i])) {
-				body.add(CFGParser.terminalToInt(bodySymbols[i]));
-			} else {
-				int nonterminalID = addNonterminal(bodySymbols[i]);
-				body.add(nonterminalID);
-			}
+		int length = parseBody(rule, arrow + 2, false);
+		return length > 0 && containsRule(ntID, bodyBuffer, length);
+	}
+
+	/**
+	 * Check if this CFG contains the rule lhs -> body, given as symbol IDs
+	 * like in addRule(int, int[]).
+	 */
+	public boolean containsRule(int lhs, int[] body) {
+		checkRule(lhs, body);
+		return containsRule(lhs, body, body.length);
+	}
+
+	private boolean containsRule(int lhsID, int[] body, int length) {
+		int bodyID = bodies.find(body, length);
+		return bodyID != -1 && rules.get(lhsID).contains(bodyID);
+	}
+
+	/**
+	 * Throw an IllegalArgumentException unless lhs -> body is a rule over
+	 * the symbols of this CFG.
+	 */
+	private void checkRule(int lhs, int[] body) {
+		if (lhs < 0 || lhs >= nts.size()) {
+			throw new IllegalArgumentException("Not a nonterminal ID: " + lhs);
 		}
-		if (!bodiesMap.containsKey(body)) {
-			return false;
+		if (body.length == 0) {
+			throw new IllegalArgumentException("Empty body, use EPSILON");
+		}
+		for (int symbolID : body) {
+			if (symbolID >= nts.size() || symbolID < -Character.MAX_VALUE
+					|| isEpsilon(symbolID) && body.length > 1) {
+				throw new IllegalArgumentException("Not a symbol ID: " + symbolID);
+			}
 		}
-		int bodyID = bodiesMap.get(body);
-		return rules.get(ntID).contains(bodyID);
 	}
 	
 	/**
@@ -165,154 +324,270 @@ public class CFG {
 
 	/**
 	 * Use the CYK algorithm to check if word can be derived from this CFG.
-	 * This method executes in cubic time for a fixed-size CFG.
+	 * Every chart cell is a bitset of nonterminals packed into longs, so the
+	 * binary rules are applied with word-wide AND/OR operations instead of
+	 * one boolean at a time. Only the upper triangle of the chart is stored,
+	 * in a single long array. This method executes in cubic time for a
+	 * fixed-size CFG.
 	 */
 	public boolean derives(String word) {
+		return derives(word, Algorithm.CYK);
+	}
+
+	/**
+	 * Check if word can be derived from this CFG using the given algorithm.
+	 * PARALLEL_CYK fills the CYK chart on the ForkJoinPool set by
+	 * setForkJoinPool(), but only for words of at least the length set by
+	 * setParallelismThreshold(). Shorter words are checked sequentially.
+	 * VALIANT uses boolean matrix multiplication and executes in subcubic
+	 * time, which pays off for long words. SPARSE only stores and combines
+	 * the spans that some nonterminal derives, which pays off when most spans
+	 * derive nothing. CYK_2NF only requires this CFG to be in the binary
+	 * normal form of toBinaryNormalForm(), and adds the unit closure to every
+	 * cell of the chart. EARLEY is the only algorithm that does not require
+	 * any normal form.
+	 */
+	public boolean derives(String word, Algorithm algorithm) {
+		if (algorithm == Algorithm.EARLEY) {
+			return getEarleyRecognizer().derives(word);
+		} else if (algorithm == Algorithm.CYK_2NF) {
+			return derivesIn2NF(word);
+		}
 		final int n = word.length();
-		int r = nts.size();
-		boolean[][][] P = new boolean[n][n][r];		// All false as default
-		for (int i = 0; i < n; i++) {
-			boolean terminalExists = false;
-			for (int ntID = 0; ntID < rules.size(); ntID++) {
-				for (int bodyID : rules.get(ntID)) {
-					if (bodies.get(bodyID).size() == 1) {
-						int symbolID = CFGParser.terminalToInt(word.charAt(i));
-						if (bodies.get(bodyID).get(0) == symbolID) {
-							P[0][i][ntID] = terminalExists = true;
-						}
-					}
-				}
-			}
-			if (!terminalExists) {
-				return false;
-			}
+		if (n == 0) {
+			return derivesEpsilon(startSymbolID);
 		}
-		for (int i = 1; i < n; i++) {
-			for (int j = 0; j < n - i; j++) {
-				for (int k = 0; k < i; k++) {
-					for (int ntID = 0; ntID < rules.size(); ntID++) {
-						for (int bodyID : rules.get(ntID)) {
-							if (bodies.get(bodyID).size() == 2) {
-								int a = ntID;
-								int b = bodies.get(bodyID).get(0);
-								int c = bodies.get(bodyID).get(1);
-								if (P[k][j][b] && P[i - k - 1][j + k + 1][c]) {
-									P[i][j][a] = true;
-								}
-							}
-						}
-					}
-				}
+		CYKTable t = getCYKTable();
+		if (algorithm == Algorithm.VALIANT) {
+			return new ValiantRecognizer(t).derives(word);
+		} else if (algorithm == Algorithm.SPARSE) {
+			return new SparseChartRecognizer(t).derives(word);
+		}
+
+		CYKChart chart = new CYKChart(n, t.w);
+		if (!t.setTerminalCells(word, chart)) {
+			return false;
+		}
+		if (algorithm == Algorithm.PARALLEL_CYK && n >= parallelismThreshold) {
+			new ParallelCYK(t, chart, pool).fill();
+		} else {
+			for (int i = 1; i < n; i++) {
+				t.fillCells(chart, i, 0, n - i);
 			}
 		}
-		return P[n - 1][0][startSymbolID];
+		return t.derivesWord(chart);
 	}
 
 	/**
-	 * Create and return a new CFG which contains only the useful symbols and
-	 * rules.
+	 * Use the CYK algorithm of Lange and Leiss to check if word can be
+	 * derived from this CFG in binary normal form. Each cell is filled from
+	 * the rules A -> a and A -> BC like in derives(), and then gets the unit
+	 * closure of its nonterminals, which covers the unit rules and the binary
+	 * rules with a nullable nonterminal.
 	 */
-	public CFG removeUselessSymbols() {
-		return this.removeNonGeneratingSymbols().removeUnreachableSymbols();
+	private boolean derivesIn2NF(String word) {
+		UnitClosure u = getUnitClosure();
+		final int n = word.length();
+		if (n == 0) {
+			return u.startIsNullable();
+		}
+		CYKTable t = getCYKTable();
+		CYKChart chart = new CYKChart(n, t.w);
+		if (!t.setTerminalCells(word, chart)) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				t.fillCells(chart, i, 0, n - i);
+			}
+			for (int j = 0; j < n - i; j++) {
+				u.apply(chart.cells, chart.offset(i, j));
+			}
+		}
+		return t.derivesWord(chart);
 	}
-	
+
 	/**
-	 * Create and return a new CFG which contains only the generating symbols 
-	 * and rules.
+	 * Return the compiled Earley form of the rules of this CFG, building it
+	 * if the rules have changed since it was last built.
 	 */
-	public CFG removeNonGeneratingSymbols() {
-		setBodySymbolCount();
-		Queue<Integer> q = initiateQueueWithGeneratingBodyNodes();
-		Queue<Boolean> nextIsABodyNode = new LinkedList<Boolean>();
-		for (int i = 0; i < q.size(); i++) {
-			nextIsABodyNode.add(true);
-		}
-		createInvertedAdjacencyArrays();
-		boolean[] isGenerating = new boolean[nts.size()];
-		while (!q.isEmpty()) {
-			if (nextIsABodyNode.poll()) {
-				int bodyID = q.poll();
-				for (int ntID : rulesInv.get(bodyID)) {
-					if (!isGenerating[ntID]) {
-						isGenerating[ntID] = true;
-						q.add(ntID);
-						nextIsABodyNode.add(false);
-					}
+	private EarleyRecognizer getEarleyRecognizer() {
+		if (earleyRecognizer != null) {
+			return earleyRecognizer;
+		}
+		int[] ruleHead = new int[noOfRules];
+		int[][] ruleBody = new int[noOfRules][];
+		int x = 0;
+		for (int ntID = 0; ntID < rules.size(); ntID++) {
+			for (int bodyID : rules.get(ntID)) {
+				ruleHead[x] = ntID;
+				if (isEpsilon(bodies.symbol(bodyID, 0))) {
+					ruleBody[x++] = new int[0];
+					continue;
 				}
-			} else {
-				int ntID = q.poll();
-				for (int bodyID : bodiesInv.get(ntID)) {
-					bodySymbolCount[bodyID]--;
-					if (bodySymbolCount[bodyID] == 0) {
-						q.add(bodyID);
-						nextIsABodyNode.add(true);
-					}
+				ruleBody[x] = new int[bodies.length(bodyID)];
+				for (int i = 0; i < ruleBody[x].length; i++) {
+					ruleBody[x][i] = bodies.symbol(bodyID, i);
 				}
+				x++;
 			}
 		}
-		return createNewCFGKeepingNonterminalsIn(isGenerating);
+		earleyRecognizer = new EarleyRecognizer(nts.size(), startSymbolID,
+				ruleHead, ruleBody, noOfRules);
+		return earleyRecognizer;
 	}
-	
+
 	/**
-	 * Label each body node with the number of its outgoing edges.
+	 * Drop the compiled forms of the rules, since the rules have changed.
 	 */
-	private void setBodySymbolCount() {
-		bodySymbolCount = new int[bodies.size()];	// All 0 as default.
-		for (int bodyID = 0; bodyID < bodies.size(); bodyID++) {
-			for (int symbolID : bodies.get(bodyID)) {
-				if (isNonterminal(symbolID)) {
-					bodySymbolCount[bodyID]++;
-				}
-			}
-		}
+	private void resetCompiledForms() {
+		cykTable = null;
+		unitClosure = null;
+		earleyRecognizer = null;
 	}
 
 	/**
-	 * Create and return a queue containing all body nodes of the CFG whose
-	 * outgoing edges all lead to terminal nodes or the epsilon node.
+	 * Return a Recognizer for words of at most maxWordLength symbols. It
+	 * checks words with the CYK algorithm like derives(), but keeps its chart
+	 * between calls, so checking a word allocates nothing. It uses the rules
+	 * this CFG has when it is created.
 	 */
-	private Queue<Integer> initiateQueueWithGeneratingBodyNodes() {
-		Queue<Integer> q = new LinkedList<Integer>();
-		for (int bodyId = 0; bodyId < bodies.size(); bodyId++) {
-			boolean addBodyId = true;
-			for (int j = 0; j < bodies.get(bodyId).size(); j++) {
-				if (isNonterminal(bodies.get(bodyId).get(j))) {
-					addBodyId = false;
-					break;
-				}
-			}
-			if (addBodyId) {
-				q.add(bodyId);
-			}
+	public Recognizer recognizer(int maxWordLength) {
+		return new Recognizer(getCYKTable(), maxWordLength,
+				derivesEpsilon(startSymbolID));
+	}
+
+	/**
+	 * Check every word of words with the CYK algorithm, like derives(). The
+	 * rules are compiled once, and the words are checked in parallel on the
+	 * Executor set by setExecutor(). Words of the same length are checked up
+	 * to 64 at a time in one bit-sliced pass. The results are in the order of
+	 * words.
+	 */
+	public boolean[] derivesAll(Collection<String> words) {
+		return submitAll(words).join();
+	}
+
+	/**
+	 * Check every word of words like derivesAll(), but return the results as
+	 * a stream in the order of words. All words are submitted at once, and
+	 * every result is available as soon as its word has been checked.
+	 */
+	public Stream<Boolean> derivesAllAsStream(Collection<String> words) {
+		BatchCYK.Batch batch = submitAll(words);
+		return IntStream.range(0, words.size()).mapToObj(batch::get);
+	}
+
+	/**
+	 * Start checking words on the Executor.
+	 */
+	private BatchCYK.Batch submitAll(Collection<String> words) {
+		return new BatchCYK(getCYKTable(), derivesEpsilon(startSymbolID),
+				executor).submit(words);
+	}
+
+	/**
+	 * Set the Executor used by derivesAll() and derivesAllAsStream(). The
+	 * common ForkJoinPool is used by default, but e.g. an Executor that
+	 * starts a virtual thread per task works as well.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Set the ForkJoinPool used by the PARALLEL_CYK algorithm. The common
+	 * pool is used by default.
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Set the minimum word length for which the PARALLEL_CYK algorithm
+	 * actually runs in parallel.
+	 */
+	public void setParallelismThreshold(int minWordLength) {
+		parallelismThreshold = minWordLength;
+	}
+
+	/**
+	 * Return the compiled CYK form of the rules of this CFG, building it if
+	 * the rules have changed since it was last built. Only rules of the form
+	 * A -> a and A -> BC are compiled.
+	 */
+	private CYKTable getCYKTable() {
+		if (cykTable == null) {
+			cykTable = freeze().cykTable();
 		}
-		return q;
+		return cykTable;
 	}
-	
+
 	/**
-	 * Create the inverted adjacency arrays rulesInv and bodiesInv. These are 
-	 * used when traversing the CFG graph edges in their opposite direction.
+	 * Return the unit closure of the rules of this CFG, building it if the
+	 * rules have changed since it was last built.
 	 */
-	private void createInvertedAdjacencyArrays() {
-		rulesInv = new ArrayList<HashSet<Integer>>();
-		for (int i = 0; i < bodies.size(); i++) {
-			rulesInv.add(new HashSet<Integer>());
+	private UnitClosure getUnitClosure() {
+		if (unitClosure == null) {
+			unitClosure = freeze().unitClosure();
 		}
+		return unitClosure;
+	}
+
+	/**
+	 * Create and return a compact, immutable copy of this CFG, where the
+	 * rules and bodies are packed into int arrays. The copy does not change
+	 * when rules are later added to this CFG.
+	 */
+	public FrozenCFG freeze() {
+		int[] ruleStart = new int[nts.size() + 1];
+		int[] ruleBody = new int[noOfRules];
 		for (int ntID = 0; ntID < nts.size(); ntID++) {
+			ruleStart[ntID + 1] = ruleStart[ntID];
 			for (int bodyID : rules.get(ntID)) {
-				rulesInv.get(bodyID).add(ntID);
+				ruleBody[ruleStart[ntID + 1]++] = bodyID;
 			}
 		}
-		bodiesInv = new ArrayList<ArrayList<Integer>>();
-		for (int i = 0; i < rules.size(); i++) {
-			bodiesInv.add(new ArrayList<Integer>());
-		}
+		int[] bodyStart = new int[bodies.size() + 1];
 		for (int bodyID = 0; bodyID < bodies.size(); bodyID++) {
-			for (int symbolID : bodies.get(bodyID)) {
-				if (isNonterminal(symbolID)) {
-					bodiesInv.get(symbolID).add(bodyID);
-				}
+			bodyStart[bodyID + 1] = bodyStart[bodyID] + bodies.length(bodyID);
+		}
+		int[] bodySymbols = new int[bodyStart[bodies.size()]];
+		for (int bodyID = 0, y = 0; bodyID < bodies.size(); bodyID++) {
+			for (int i = 0; i < bodies.length(bodyID); i++) {
+				bodySymbols[y++] = bodies.symbol(bodyID, i);
 			}
 		}
+		return new FrozenCFG(nts.toArray(), startSymbolID,
+				ruleStart, ruleBody, bodyStart, bodySymbols);
+	}
+
+	/**
+	 * Check if there is a rule A -> epsilon, where A has the given ID.
+	 */
+	private boolean derivesEpsilon(int ntID) {
+		for (int bodyID : rules.get(ntID)) {
+			if (isEpsilon(bodies.symbol(bodyID, 0))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Create and return a new CFG which contains only the useful symbols and
+	 * rules.
+	 */
+	public CFG removeUselessSymbols() {
+		return this.removeNonGeneratingSymbols().removeUnreachableSymbols();
+	}
+	
+	/**
+	 * Create and return a new CFG which contains only the generating symbols 
+	 * and rules.
+	 */
+	public CFG removeNonGeneratingSymbols() {
+		return createNewCFGKeepingNonterminalsIn(freeze().findGeneratingSymbols());
 	}
 	
 	/**
@@ -322,20 +597,22 @@ public class CFG {
 	 */
 	private CFG createNewCFGKeepingNonterminalsIn(boolean[] ntsToKeep) {
 		CFG g = new CFG();
+		int[] map = newNonterminalMap();
 		for (int ntID = 0; ntID < rules.size(); ntID++) {
 			if (!ntsToKeep[ntID]) {
 				continue;
 			}
 			for (int bodyID : rules.get(ntID)) {
 				boolean addRule = true;
-				for (int symbolID : bodies.get(bodyID)) {
+				for (int i = 0; i < bodies.length(bodyID); i++) {
+					int symbolID = bodies.symbol(bodyID, i);
 					if (isNonterminal(symbolID) && !ntsToKeep[symbolID]) {
 						addRule = false;
 						break;
 					}
 				}
 				if (addRule) {
-					g.addRule(nts.get(ntID) + " -> " + bodyToString(bodyID));
+					copyRule(g, map, mapNonterminal(g, map, ntID), bodyID);
 				}
 			}
 		}
@@ -354,16 +631,23 @@ public class CFG {
 	}
 
 	/**
-	 * Perform a depth-first search to find all reachable body nodes.
+	 * Perform a depth-first search to find all reachable body nodes. The
+	 * nonterminals still to be searched are kept on an explicit stack.
 	 */
 	private void findReachableBodies(int ntID) {
+		IntStack stack = new IntStack();
 		isReachable[ntID] = hasVisitedSymbol[ntID] = true;
-		for (int bodyID : rules.get(ntID)) {
-			if (!hasVisitedBody[bodyID]) {
-				hasVisitedBody[bodyID] = true;
-				for (int ntID2 : bodies.get(bodyID)) {
-					if (isNonterminal(ntID2) && !hasVisitedSymbol[ntID2]) {
-						findReachableBodies(ntID2);
+		stack.push(ntID);
+		while (!stack.isEmpty()) {
+			for (int bodyID : rules.get(stack.pop())) {
+				if (!hasVisitedBody[bodyID]) {
+					hasVisitedBody[bodyID] = true;
+					for (int i = 0; i < bodies.length(bodyID); i++) {
+						int ntID2 = bodies.symbol(bodyID, i);
+						if (isNonterminal(ntID2) && !hasVisitedSymbol[ntID2]) {
+							isReachable[ntID2] = hasVisitedSymbol[ntID2] = true;
+							stack.push(ntID2);
+						}
 					}
 				}
 			}
@@ -379,17 +663,18 @@ public class CFG {
 	public boolean isInCNF() {
 		for (int ntID = 0; ntID < rules.size(); ntID++) {
 			for (int bodyID : rules.get(ntID)) {
-				ArrayList<Integer> b = bodies.get(bodyID);
-				if (b.size() > 2) {
+				int length = bodies.length(bodyID);
+				int first = bodies.symbol(bodyID, 0);
+				if (length > 2) {
 					return false;
-				} else if (b.size() == 2) {
-					if (!isNonterminal(b.get(0)) || !isNonterminal(b.get(1))) {
+				} else if (length == 2) {
+					if (!isNonterminal(first) || !isNonterminal(bodies.symbol(bodyID, 1))) {
 						return false;
 					}
 				} else {
-					if (ntID > 0 && !isTerminal(b.get(0))) {
+					if (ntID > 0 && !isTerminal(first)) {
 						return false;
-					} else if (ntID == 0 && isNonterminal(b.get(0))) {
+					} else if (ntID == 0 && isNonterminal(first)) {
 						return false;
 					}
 				}
@@ -398,52 +683,112 @@ public class CFG {
 		return true;
 	}
 
+	/**
+	 * Check if this CFG is in the binary normal form of toBinaryNormalForm(),
+	 * i.e. if every body has at most two symbols, and every body of two
+	 * symbols has two nonterminals.
+	 */
+	public boolean isInBinaryNormalForm() {
+		for (int ntID = 0; ntID < rules.size(); ntID++) {
+			for (int bodyID : rules.get(ntID)) {
+				int length = bodies.length(bodyID);
+				if (length > 2) {
+					return false;
+				} else if (length == 2 && (!isNonterminal(bodies.symbol(bodyID, 0))
+						|| !isNonterminal(bodies.symbol(bodyID, 1)))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Create and return a new equivalent CFG that is in Chomsky Normal Form.
 	 */
 	public CFG toCNF() {
+		return toCNF(false);
+	}
+
+	/**
+	 * Create and return a new equivalent CFG that is in Chomsky Normal Form,
+	 * where the long bodies share new nonterminals if share is true, see
+	 * splitUpLongRules(boolean).
+	 */
+	public CFG toCNF(boolean share) {
 		CFG g = this.createNewStartSymbol();
 		g = g.substituteTerminals();
-		g = g.splitUpLongRules();
+		g = g.splitUpLongRules(share);
 		g = g.removeEpsilonRules();
 		g = g.removeUnitRules();
 		g = g.removeUselessSymbols();
 		return g;
 	}
-	
+
+	/**
+	 * Create and return a new equivalent CFG in the binary normal form (2NF)
+	 * of Lange and Leiss, where every body is epsilon, a terminal, a
+	 * nonterminal or two nonterminals. Unlike toCNF(), the epsilon rules and
+	 * unit rules are kept, so the new CFG has size linear in size(). Use
+	 * derives(word, Algorithm.CYK_2NF) to check its words.
+	 */
+	public CFG toBinaryNormalForm() {
+		CFG g = this.substituteTerminals();
+		g = g.splitUpLongRules(true);
+		g = g.removeUselessSymbols();
+		return g;
+	}
+
 	/**
 	 * Substitute every terminal u in a body of length at least 2 with a
 	 * nonterminal U and a unit rule U -> u.
 	 */
 	public CFG substituteTerminals() {
 		CFG g = new CFG();
-		HashMap<Integer, String> substitutedNames;
-		substitutedNames = new HashMap<Integer, String>();
-		for (int i = -2, k = 0; i > -128; k++) {
-			if (!nts.contains("U" + k)) {
-				substitutedNames.put(i--, "U" + k);
-			}
-		}
+		int[] map = newNonterminalMap();
+		// The terminal u is substituted with names[-u], and substitutedIDs[-u]
+		// is its ID in g (or 0 if it has not been added yet).
+		SymbolTable.Namespace substitutedNames = nts.namespace("U");
+		String[] names = new String[2];
+		int[] substitutedIDs = new int[2];
+		int[] unitBody = new int[1];
 		for (int ntID = 0; ntID < rules.size(); ntID++) {
 			for (int bodyID : rules.get(ntID)) {
-				StringBuilder rule = new StringBuilder(nts.get(ntID) + " -> ");
-				ArrayList<Integer> body = bodies.get(bodyID);
-				if (body.size() >= 2) {
-					for (int i = 0; i < body.size(); i++) {
-						if (isTerminal(body.get(i))) {
-							rule.append(substitutedNames.get(body.get(i)));
-							g.addRule(substitutedNames.get(body.get(i)) + " -> " 
-									+ CFGParser.terminalToString(body.get(i)));
-						} else {
-							rule.append(nts.get(body.get(i)));
+				int length = bodies.length(bodyID);
+				if (length < 2) {
+					copyRule(g, map, mapNonterminal(g, map, ntID), bodyID);
+					continue;
+				}
+				for (int i = 0; i < length; i++) {
+					int symbolID = bodies.symbol(bodyID, i);
+					if (!isTerminal(symbolID)) {
+						continue;
+					}
+					if (-symbolID >= names.length) {
+						int from = names.length;
+						names = Arrays.copyOf(names, Math.max(128, 1 - symbolID));
+						substitutedIDs = Arrays.copyOf(substitutedIDs, names.length);
+						for (int u = from; u < names.length; u++) {
+							names[u] = substitutedNames.next();
 						}
 					}
-				} else {
-					rule.append(bodyToString(bodyID));
+					if (substitutedIDs[-symbolID] == 0) {
+						String name = names[-symbolID];
+						substitutedIDs[-symbolID] = g.addNonterminal(name, 0,
+								name.length());
+						unitBody[0] = symbolID;
+						g.addRule(substitutedIDs[-symbolID], unitBody, 1);
+					}
+				}
+				int lhsID = mapNonterminal(g, map, ntID);
+				int[] body = g.bodyBuffer(length);
+				for (int i = 0; i < length; i++) {
+					int symbolID = bodies.symbol(bodyID, i);
+					body[i] = isTerminal(symbolID) ? substitutedIDs[-symbolID]
+							: mapNonterminal(g, map, symbolID);
 				}
-				g.addRule(rule.toString());
+				g.addRule(lhsID, body, length);
 			}
-			
 		}
 		return g;
 	}
@@ -452,130 +797,250 @@ public class CFG {
 	 * Split up rules with long bodies into rules with bodies of length 2.
 	 */
 	public CFG splitUpLongRules() {
+		return splitUpLongRules(false);
+	}
+
+	/**
+	 * Split up rules with long bodies into rules with bodies of length 2. A
+	 * body X1X2...Xn becomes X1V1, where V1 -> X2V2, ..., Vn-2 -> Xn-1Xn.
+	 * If share is true, the new nonterminals are shared between bodies:
+	 * pairs of symbols that occur in several bodies get one nonterminal,
+	 * and so do the suffixes that several bodies end in. The new CFG then
+	 * has fewer nonterminals and rules, which makes the CYK chart of its CNF
+	 * smaller.
+	 */
+	public CFG splitUpLongRules(boolean share) {
+		if (share) {
+			return splitUpLongRulesSharingSubstrings();
+		}
 		CFG g = new CFG();
-		int k = 0;
+		int[] map = newNonterminalMap();
+		int[] pair = new int[2];
+		SymbolTable.Namespace newNames = nts.namespace("V");
 		for (int ntID = 0; ntID < rules.size(); ntID++) {
-			String nt = symbolIDToString(ntID);
 			for (int bodyID : rules.get(ntID)) {
-				ArrayList<Integer> body = bodies.get(bodyID);
-				if (body.size() <= 2) {
-					g.addRule(nt + " -> " + bodyToString(bodyID));
-				} else {
-					String lastNt = symbolIDToString(ntID);
-					int i = 0;
-					for (; i < body.size() - 2; i++) {
-						k = findUnusedNonterminalName("V", k);
-						String newNt = "V" + k++;
-						String rule = lastNt + " -> ";
-						rule += symbolIDToString(body.get(i)) + newNt;
-						g.addRule(rule);
-						lastNt = newNt;
-					}
-					String rule = lastNt + " -> ";
-					rule += symbolIDToString(body.get(i));
-					rule += symbolIDToString(body.get(i + 1));
-					g.addRule(rule);
+				int length = bodies.length(bodyID);
+				if (length <= 2) {
+					copyRule(g, map, mapNonterminal(g, map, ntID), bodyID);
+					continue;
+				}
+				int lastNt = mapNonterminal(g, map, ntID);
+				int i = 0;
+				for (; i < length - 2; i++) {
+					String newNt = newNames.next();
+					pair[0] = mapSymbol(g, map, bodies.symbol(bodyID, i));
+					pair[1] = g.addNonterminal(newNt, 0, newNt.length());
+					g.addRule(lastNt, pair, 2);
+					lastNt = pair[1];
 				}
+				pair[0] = mapSymbol(g, map, bodies.symbol(bodyID, i));
+				pair[1] = mapSymbol(g, map, bodies.symbol(bodyID, i + 1));
+				g.addRule(lastNt, pair, 2);
 			}
 		}
 		return g;
 	}
 	
 	/**
-	 * Create and return a new CFG with equal language with all epsilon rules
-	 * removed (except possibly S -> epsilon). NOTE: All rule bodies must have
-	 * length at most 2!
+	 * Split up rules with long bodies like splitUpLongRules(true). The long
+	 * bodies are copied to one array, and their frequent pairs of symbols are
+	 * merged in rounds: every pair that occurs at least twice (or already has
+	 * a nonterminal) is replaced by a nonterminal V with the rule V -> XY,
+	 * scanning every body from the left. The rounds stop once a round shrinks
+	 * the bodies by less than 1/16, so they take linear time in total. The
+	 * bodies still longer than 2 are then split from the end, where every
+	 * suffix is looked up the same way.
 	 */
-	public CFG removeEpsilonRules() {
+	private CFG splitUpLongRulesSharingSubstrings() {
 		CFG g = new CFG();
-		setBodySymbolCount();
-		Queue<Integer> q = initiateQueueWithEpsilonBody();
-		Queue<Boolean> nextIsABodyNode = new LinkedList<Boolean>();
-		nextIsABodyNode.add(true);
-		createInvertedAdjacencyArrays();
-		boolean[] isNullable = new boolean[nts.size()];
-		while (!q.isEmpty()) {
-			if (nextIsABodyNode.poll()) {
-				int bodyID = q.poll();
-				for (int ntID : rulesInv.get(bodyID)) {
-					if (!isNullable[ntID]) {
-						isNullable[ntID] = true;
-						q.add(ntID);
-						nextIsABodyNode.add(false);
-					}
+		int[] map = newNonterminalMap();
+		int noOfLongBodies = 0;
+		int noOfSymbols = 0;
+		for (int ntID = 0; ntID < rules.size(); ntID++) {
+			for (int bodyID : rules.get(ntID)) {
+				if (bodies.length(bodyID) > 2) {
+					noOfLongBodies++;
+					noOfSymbols += bodies.length(bodyID);
 				}
-			} else {
-				int ntID = q.poll();
-				for (int bodyID : bodiesInv.get(ntID)) {
-					bodySymbolCount[bodyID]--;
-					if (bodySymbolCount[bodyID] == 0) {
-						q.add(bodyID);
-						nextIsABodyNode.add(true);
+			}
+		}
+		// Long body x is symbols[start[x]..start[x]+lengths[x]-1], mapped to
+		// g, and has the head heads[x].
+		int[] heads = new int[noOfLongBodies];
+		int[] start = new int[noOfLongBodies];
+		int[] lengths = new int[noOfLongBodies];
+		int[] symbols = new int[noOfSymbols];
+		for (int ntID = 0, x = 0, y = 0; ntID < rules.size(); ntID++) {
+			for (int bodyID : rules.get(ntID)) {
+				int length = bodies.length(bodyID);
+				int lhsID = mapNonterminal(g, map, ntID);
+				if (length <= 2) {
+					copyRule(g, map, lhsID, bodyID);
+					continue;
+				}
+				heads[x] = lhsID;
+				start[x] = y;
+				lengths[x++] = length;
+				for (int i = 0; i < length; i++) {
+					symbols[y++] = mapSymbol(g, map, bodies.symbol(bodyID, i));
+				}
+			}
+		}
+
+		// pairNts[p] is the nonterminal of g with the rule V -> XY, where p is
+		// the ID of XY in pairs, or 0 if XY has none yet.
+		BodyTable pairs = new BodyTable();
+		int[] pairNts = new int[16];
+		int[] pair = new int[2];
+		SymbolTable.Namespace newNames = nts.namespace("V");
+		while (true) {
+			int[] counts = new int[pairs.size() + noOfSymbols];
+			for (int x = 0; x < noOfLongBodies; x++) {
+				int end = start[x] + lengths[x];
+				for (int y = start[x]; lengths[x] > 2 && y + 1 < end; y++) {
+					pair[0] = symbols[y];
+					pair[1] = symbols[y + 1];
+					counts[pairs.intern(pair, 2)]++;
+				}
+			}
+			pairNts = Arrays.copyOf(pairNts, Math.max(pairNts.length, pairs.size()));
+			int merged = 0;
+			for (int x = 0; x < noOfLongBodies; x++) {
+				if (lengths[x] <= 2) {
+					continue;
+				}
+				int from = start[x];
+				int to = start[x];
+				int end = start[x] + lengths[x];
+				while (from < end) {
+					if (from + 1 < end) {
+						pair[0] = symbols[from];
+						pair[1] = symbols[from + 1];
+						int pairID = pairs.find(pair, 2);
+						if (counts[pairID] >= 2 || pairNts[pairID] != 0) {
+							symbols[to++] = pairNonterminal(g, pairNts, pairID,
+									pair, newNames);
+							from += 2;
+							merged++;
+							continue;
+						}
 					}
+					symbols[to++] = symbols[from++];
 				}
+				lengths[x] = to - start[x];
 			}
+			noOfSymbols -= merged;
+			if (merged == 0 || 16 * merged < noOfSymbols + merged) {
+				break;
+			}
+		}
+
+		pairNts = Arrays.copyOf(pairNts, pairs.size() + noOfSymbols);
+		for (int x = 0; x < noOfLongBodies; x++) {
+			int rest = symbols[start[x] + lengths[x] - 1];
+			for (int y = start[x] + lengths[x] - 2; y > start[x]; y--) {
+				pair[0] = symbols[y];
+				pair[1] = rest;
+				rest = pairNonterminal(g, pairNts, pairs.intern(pair, 2), pair,
+						newNames);
+			}
+			pair[0] = symbols[start[x]];
+			pair[1] = rest;
+			g.addRule(heads[x], pair, 2);
+		}
+		return g;
+	}
+
+	/**
+	 * Return the nonterminal of g with the rule V -> pair, where pairID is
+	 * the ID of pair in the table of pairs, adding V to g if it does not
+	 * exist.
+	 */
+	private static int pairNonterminal(CFG g, int[] pairNts, int pairID,
+			int[] pair, SymbolTable.Namespace newNames) {
+		if (pairNts[pairID] == 0) {
+			String newNt = newNames.next();
+			pairNts[pairID] = g.addNonterminal(newNt, 0, newNt.length());
+			g.addRule(pairNts[pairID], pair, 2);
 		}
+		return pairNts[pairID];
+	}
+
+	/**
+	 * Create and return a new CFG with equal language with all epsilon rules
+	 * removed (except possibly S -> epsilon). NOTE: All rule bodies must have
+	 * length at most 2!
+	 */
+	public CFG removeEpsilonRules() {
+		CFG g = new CFG();
+		boolean[] isNullable = freeze().fixpointEngine().findNullable();
+		int[] map = newNonterminalMap();
+		int[] unitBody = new int[1];
 		for (int ntID = 0; ntID < rules.size(); ntID++) {
-			String nt = symbolIDToString(ntID);
 			for (int bodyID : rules.get(ntID)) {
-				ArrayList<Integer> body = bodies.get(bodyID);
-				if (!isEpsilon(body.get(0))) {
-					g.addRule(nt + " -> " + bodyToString(bodyID));
+				int first = bodies.symbol(bodyID, 0);
+				if (!isEpsilon(first)) {
+					copyRule(g, map, mapNonterminal(g, map, ntID), bodyID);
 				}
-				if (body.size() == 2) {
-					if (isNonterminal(body.get(0)) && isNullable[body.get(0)]) {
-						g.addRule(nt + " -> " + symbolIDToString(body.get(1)));
+				if (bodies.length(bodyID) == 2) {
+					int second = bodies.symbol(bodyID, 1);
+					if (isNonterminal(first) && isNullable[first]) {
+						int lhsID = mapNonterminal(g, map, ntID);
+						unitBody[0] = mapSymbol(g, map, second);
+						g.addRule(lhsID, unitBody, 1);
 					}
-					if (isNonterminal(body.get(1)) && isNullable[body.get(1)]) {
-						g.addRule(nt + " -> " + symbolIDToString(body.get(0)));
+					if (isNonterminal(second) && isNullable[second]) {
+						int lhsID = mapNonterminal(g, map, ntID);
+						unitBody[0] = mapSymbol(g, map, first);
+						g.addRule(lhsID, unitBody, 1);
 					}
 				}
 			}
 		}
-		if (this.containsRule("S -> epsilon")) {
-			g.addRule("S -> epsilon");
+		if (isNullable[startSymbolID]) {
+			unitBody[0] = EPSILON;
+			g.addRule(g.startSymbolID, unitBody, 1);
 		}
 		return g;
 	}
 
 	/**
-	 * Create and return a queue containing the body node of the CFG whose
-	 * outgoing edge leads to epsilon.
+	 * Check if the language generated by this CFG is empty. The generating
+	 * nonterminals are kept up to date by addRule() and removeRule() after
+	 * the first call, so this takes constant time.
 	 */
-	private Queue<Integer> initiateQueueWithEpsilonBody() {
-		Queue<Integer> q = new LinkedList<Integer>();
-		for (int bodyId = 0; bodyId < bodies.size(); bodyId++) {
-			if (isEpsilon(bodies.get(bodyId).get(0))) {
-				q.add(bodyId);
-				break;
-			}
-		}
-		return q;
+	public boolean languageIsEmpty() {
+		return !getUsefulSymbols().isGenerating(startSymbolID);
 	}
-	
+
 	/**
-	 * Find and return the next integer k such that the nonterminal Uk (e.g.
-	 * U0 or U123) does not already exist in the grammar.
+	 * Check if the given nonterminal is useful, i.e. if it is kept by
+	 * removeUselessSymbols(). Like languageIsEmpty(), this takes constant
+	 * time after the first call.
 	 */
-	private int findUnusedNonterminalName(String name, int k) {
-		if (nts.contains(name + k)) {
-			return findUnusedNonterminalName(name, k + 1);
-		}
-		return k;
+	public boolean isUseful(CharSequence nonterminal) {
+		int ntID = nts.find(nonterminal, 0, nonterminal.length());
+		return ntID != -1 && getUsefulSymbols().isUseful(ntID);
 	}
 
 	/**
-	 * Check if the language generated by this CFG is empty.
+	 * Return the generating and useful nonterminals, which are maintained by
+	 * addRule() and removeRule() once they have been computed.
 	 */
-	public boolean languageIsEmpty() {
-		return this.removeUselessSymbols().noOfRules() == 0;
+	private UsefulSymbols getUsefulSymbols() {
+		if (usefulSymbols == null) {
+			usefulSymbols = new UsefulSymbols(rules, bodies, startSymbolID);
+		}
+		return usefulSymbols;
 	}
 
 	/**
-	 * Check if the language generated by this CFG is finite.
+	 * Check if the language generated by this CFG is finite. This is decided
+	 * on a frozen copy of the rules, in time linear in the size of the CFG,
+	 * see FrozenCFG.languageIsFinite().
 	 */
 	public boolean languageIsFinite() {
-		return !this.toCNF().isCyclicInit(startSymbolID);
+		return freeze().languageIsFinite();
 	}
 	
 	/**
@@ -584,27 +1049,43 @@ public class CFG {
 	public boolean isCyclicInit(int ntID) {
 		isStacked = new boolean[nts.size()];
 		hasVisitedSymbol = new boolean[nts.size()];
-		return isCyclic(startSymbolID);
+		return isCyclic(ntID);
 	}
 	
 	/**
 	 * Search for cycles in the CFG graph. Return true iff there is a cycle.
+	 * The search is depth-first with an explicit stack of entries: a
+	 * nonterminal A to enter, or ~A to leave A once all the nonterminals
+	 * entered above it are done. A is on the current path (isStacked) from
+	 * entering to leaving it, so reaching it again means a cycle.
 	 */
 	public boolean isCyclic(int ntID) {
-		isStacked[ntID] = hasVisitedSymbol[ntID] = true;
-		for (int bodyID : rules.get(ntID)) {
-			for (int ntID2 : bodies.get(bodyID)) {
-				if (isNonterminal(ntID2)) {
-					if (isStacked[ntID2]) {
-						return true;
-					}
-					if (!hasVisitedSymbol[ntID2] && isCyclic(ntID2)) {
-						return true;
+		IntStack stack = new IntStack();
+		stack.push(ntID);
+		while (!stack.isEmpty()) {
+			int a = stack.pop();
+			if (a < 0) {
+				isStacked[~a] = false;
+				continue;
+			}
+			if (isStacked[a]) {
+				return true;
+			}
+			if (hasVisitedSymbol[a]) {
+				continue;
+			}
+			isStacked[a] = hasVisitedSymbol[a] = true;
+			stack.push(~a);
+			for (int bodyID : rules.get(a)) {
+				for (int i = 0; i < bodies.length(bodyID); i++) {
+					int ntID2 = bodies.symbol(bodyID, i);
+					if (isNonterminal(ntID2) && (isStacked[ntID2]
+							|| !hasVisitedSymbol[ntID2])) {
+						stack.push(ntID2);
 					}
 				}
 			}
 		}
-		isStacked[ntID] = false;
 		return false;
 	}
 	
@@ -614,47 +1095,139 @@ public class CFG {
 	 */
 	public CFG createNewStartSymbol() {
 		CFG g = new CFG();
-		String newStartSymbol = "S" + findUnusedNonterminalName("S", 0);
-		g.addRule("S -> " + newStartSymbol);
+		String newStartSymbol = nts.namespace("S").next();
+		int[] map = newNonterminalMap();
+		map[startSymbolID] = g.addNonterminal(newStartSymbol, 0,
+				newStartSymbol.length());
+		int[] unitBody = {map[startSymbolID]};
+		g.addRule(g.startSymbolID, unitBody, 1);
 		for (int ntID = 0; ntID < rules.size(); ntID++) {
-			String nt = symbolIDToString(ntID);
-			if (ntID == startSymbolID) {
-				nt = newStartSymbol;
-			}
 			for (int bodyID : rules.get(ntID)) {
-				ArrayList<Integer> body = bodies.get(bodyID);
-				StringBuilder rule = new StringBuilder(nt + " -> ");
-				for (int symbolID : body) {
-					if (symbolID == startSymbolID) {
-						rule.append(newStartSymbol);
-					} else {
-						rule.append(symbolIDToString(symbolID));
-					}
-				}
-				g.addRule(rule.toString());
+				copyRule(g, map, mapNonterminal(g, map, ntID), bodyID);
 			}
 		}
-		if (this.containsRule("S -> epsilon")) {
-			g.addRule("S -> epsilon");
+		if (derivesEpsilon(startSymbolID)) {
+			unitBody[0] = EPSILON;
+			g.addRule(g.startSymbolID, unitBody, 1);
 		}
 		return g;
 	}
 	
 	/**
 	 * Remove unit rules while keeping the language the same. This is done by
-	 * first computing all the strongly connected components, and then removing
-	 * the unit cycles (i.e. contracting every nonterminal node of a strongly
-	 * connected component). Next, traverse the graph in inverted order and for
-	 * each rule A -> B, copy the rules where B is the head to A. Finally,
-	 * remove all unit rules.
+	 * first computing all the strongly connected components of the unit
+	 * rules, which are contracted into their root nonterminals like in
+	 * removeUnitCycles(). The components form a DAG, and the closure of a
+	 * component is the set of its bodies that are not unit bodies, together
+	 * with the closures of the components it has unit rules to. The closures
+	 * are computed in the order findSCC() finds the components, as int
+	 * arrays of body IDs. A component shares the array of its largest child
+	 * only if its own bodies and its other children add nothing to it, so
+	 * only chains of bare unit rules cost one array. In the worst case, a
+	 * chain of k components that each have a body of their own, the arrays
+	 * hold O(k^2) body IDs, which is no more than the number of rules of the
+	 * new CFG. The rules are only copied when they are added to the new CFG.
+	 * This CFG is not changed.
 	 */
 	public CFG removeUnitRules() {
 		findSCCInit();
-		CFG g = this.removeUnitCycles();
-		g = g.copyRulesUpAlongUnitRules();
-		return g.removeUnitRulesOnly();
+		final int n = nts.size();
+		// The members of the component with root r are
+		// members[memberStart[r]..memberStart[r+1]-1].
+		int[] memberStart = new int[n + 1];
+		for (int ntID = 0; ntID < n; ntID++) {
+			memberStart[scc[ntID] + 1]++;
+		}
+		for (int ntID = 0; ntID < n; ntID++) {
+			memberStart[ntID + 1] += memberStart[ntID];
+		}
+		int[] members = new int[n];
+		int[] next = memberStart.clone();
+		for (int ntID = 0; ntID < n; ntID++) {
+			members[next[scc[ntID]]++] = ntID;
+		}
+
+		int[][] closure = new int[n][];
+		// mark[b] is r + 1 once the body b is in the closure of r.
+		int[] mark = new int[bodies.size()];
+		IntStack union = new IntStack();
+		for (int x = 0; x < sccRoots.size(); x++) {
+			int r = sccRoots.get(x);
+			int[] largest = null;
+			for (int y = memberStart[r]; y < memberStart[r + 1]; y++) {
+				for (int bodyID : rules.get(members[y])) {
+					int[] childClosure = childClosure(bodyID, r, closure);
+					if (childClosure != null && (largest == null
+							|| childClosure.length > largest.length)) {
+						largest = childClosure;
+					}
+				}
+			}
+			union.clear();
+			if (largest != null) {
+				addToClosure(largest, r, mark, union);
+			}
+			for (int y = memberStart[r]; y < memberStart[r + 1]; y++) {
+				for (int bodyID : rules.get(members[y])) {
+					int[] childClosure = childClosure(bodyID, r, closure);
+					if (!isUnitBody(bodyID)) {
+						addToClosure(bodyID, r, mark, union);
+					} else if (childClosure != null && childClosure != largest) {
+						addToClosure(childClosure, r, mark, union);
+					}
+				}
+			}
+			closure[r] = largest != null && union.size() == largest.length
+					? largest : union.toArray();
+		}
+
+		CFG g = new CFG();
+		int[] map = newNonterminalMap();
+		for (int ntID = 0; ntID < n; ntID++) {
+			if (scc[ntID] != ntID) {
+				continue;
+			}
+			for (int bodyID : closure[ntID]) {
+				copyRuleToSCCs(g, map, mapNonterminal(g, map, ntID), bodyID);
+			}
+		}
+		return g;
 	}
 	
+	/**
+	 * Return the closure of the component the unit body with the given ID
+	 * leads to, or null if it is not a unit body to another component than
+	 * that of r.
+	 */
+	private int[] childClosure(int bodyID, int r, int[][] closure) {
+		if (!isUnitBody(bodyID) || scc[bodies.symbol(bodyID, 0)] == r) {
+			return null;
+		}
+		return closure[scc[bodies.symbol(bodyID, 0)]];
+	}
+
+	/**
+	 * Add the body with the given ID to the closure of r, unless it is
+	 * already there.
+	 */
+	private static void addToClosure(int bodyID, int r, int[] mark,
+			IntStack union) {
+		if (mark[bodyID] != r + 1) {
+			mark[bodyID] = r + 1;
+			union.push(bodyID);
+		}
+	}
+
+	/**
+	 * Add the bodies with the given IDs to the closure of r.
+	 */
+	private static void addToClosure(int[] bodyIDs, int r, int[] mark,
+			IntStack union) {
+		for (int bodyID : bodyIDs) {
+			addToClosure(bodyID, r, mark, union);
+		}
+	}
+
 	/**
 	 * Creates and return a new CFG which has all nonterminal nodes in the same 
 	 * strongly connected component contracted into one nonterminal. It also
@@ -663,25 +1236,14 @@ public class CFG {
 	public CFG removeUnitCycles() {
 		findSCCInit();
 		CFG g = new CFG();
+		int[] map = newNonterminalMap();
 		for (int ntID = 0; ntID < nts.size(); ntID++) {
 			for (int bodyID : rules.get(ntID)) {
-				ArrayList<Integer> body = bodies.get(bodyID);
-				StringBuilder rule = new StringBuilder(nts.get(scc[ntID]));
-				rule.append(" -> ");
-				for (int i = 0; i < body.size(); i++) {
-					if (isNonterminal(body.get(i))) {
-						rule.append(nts.get(scc[body.get(i)]));
-					} else if (isTerminal(body.get(i))) {
-						rule.append(CFGParser.terminalToString(body.get(i)));
-					} else {
-						rule.append("epsilon");
-					}
-				}
-				if (!(body.size() == 1 && isNonterminal(body.get(0)) && scc[ntID] == scc[body.get(0)])) {
-					g.addRule(rule.toString());
+				if (isUnitBody(bodyID) && scc[ntID] == scc[bodies.symbol(bodyID, 0)]) {
+					continue;
 				}
+				copyRuleToSCCs(g, map, mapNonterminal(g, map, scc[ntID]), bodyID);
 			}
-			rules.get(scc[ntID]).addAll(rules.get(ntID));
 		}
 		return g;
 	}
@@ -691,7 +1253,8 @@ public class CFG {
 	 */
 	public void findSCCInit() {
 		index = 0;
-		stack = new Stack<Integer>();
+		stack = new IntStack();
+		sccRoots = new IntStack();
 		scc = new int[nts.size()];
 		for (int i = 0; i < scc.length; i++) {
 			scc[i] = i;
@@ -714,71 +1277,111 @@ public class CFG {
 	 * creates a mapping in the variable scc, where scc[ntID] = rootNtID, that
 	 * is the root nonterminal node of the strongly connected component ntID is
 	 * inside.
+	 *
+	 * The recursion of the algorithm is replaced by explicit stacks: calls
+	 * holds the nonterminals being searched, and the unit rule children of
+	 * each of them wait on children above the height saved in childrenFrom,
+	 * in the order the recursion would visit them.
 	 */
 	public void findSCC(int ntID) {
+		IntStack calls = new IntStack();
+		IntStack childrenFrom = new IntStack();
+		IntStack children = new IntStack();
+		enterSCC(ntID, calls, childrenFrom, children);
+		while (!calls.isEmpty()) {
+			int ntID1 = calls.peek();
+			if (children.size() > childrenFrom.peek()) {
+				int ntID2 = children.pop();
+				if (indexes[ntID2] == -1) {
+					enterSCC(ntID2, calls, childrenFrom, children);
+				} else if (isStacked[ntID2]) {
+					lowLink[ntID1] = Math.min(lowLink[ntID1], indexes[ntID2]);
+				}
+				continue;
+			}
+			calls.pop();
+			childrenFrom.pop();
+			if (lowLink[ntID1] == indexes[ntID1]) {
+				int ntID2;
+				do {
+					ntID2 = stack.pop();
+					isStacked[ntID2] = false;
+					scc[ntID2] = ntID1;
+				} while (ntID2 != ntID1);
+				sccRoots.push(ntID1);
+			}
+			if (!calls.isEmpty()) {
+				int parent = calls.peek();
+				lowLink[parent] = Math.min(lowLink[parent], lowLink[ntID1]);
+			}
+		}
+	}
+
+	/**
+	 * Start searching ntID in findSCC(): number it, put it on the stacks and
+	 * push its unit rule children.
+	 */
+	private void enterSCC(int ntID, IntStack calls, IntStack childrenFrom,
+			IntStack children) {
 		indexes[ntID] = lowLink[ntID] = index++;
 		stack.push(ntID);
 		isStacked[ntID] = true;
-		
+		calls.push(ntID);
+		childrenFrom.push(children.size());
 		for (int bodyID : rules.get(ntID)) {
-			if (!(bodies.get(bodyID).size() == 1 && isNonterminal(bodies.get(bodyID).get(0)))) {
-				continue;
-			}
-			int ntID2 = bodies.get(bodyID).get(0);
-			if (indexes[ntID2] == -1) {
-				findSCC(ntID2);
-				lowLink[ntID] = Math.min(lowLink[ntID], lowLink[ntID2]);
-			} else if (isStacked[ntID2]) {
-				lowLink[ntID] = Math.min(lowLink[ntID], indexes[ntID2]);
+			if (isUnitBody(bodyID)) {
+				children.push(bodies.symbol(bodyID, 0));
 			}
 		}
-		
-		if (lowLink[ntID] == indexes[ntID]) {
-			int ntID2 = stack.peek();
-			do {
-				ntID2 = stack.pop();
-				isStacked[ntID2] = false;
-				scc[ntID2] = ntID;
-			} while (ntID2 != ntID);
-		}
+		children.reverse(childrenFrom.peek());
 	}
 	
 	/**
-	 * Iteratively traverse the graph in inverted order, and whenever we
-	 * encounter a unit rule, we copy the rules of the child to the parent node.
-	 * If we encounter a non-unit rule, we simply keep traversing without any
-	 * copying. We can only keep traversing a nonterminal A if its
-	 * ntUnitRuleCount is 0, that is there no longer exists a rule A -> B
-	 * (for which we delete whenever we find them).
+	 * For every unit rule A -> B, copy the rules of B to A. The nonterminals
+	 * are handled in the order given by FixpointEngine.unitRuleOrder(), where
+	 * A only comes once every B with A -> B has got the rules of its own unit
+	 * rules.
 	 * 
 	 * Note: This method actually changes the rules of THIS grammar! (In most
 	 * other methods, we create a new grammar).
 	 */
 	public CFG copyRulesUpAlongUnitRules() {
-		hasVisitedSymbol = new boolean[nts.size()];
-		setNtUnitRuleCount();
-		setBodySymbolCount();
-		Queue<Integer> q = initiateQueueWithNonUnitNts();
-		createInvertedAdjacencyArrays();
-		while (!q.isEmpty()) {
-			int ntID = q.poll();
-			for (int bodyID : bodiesInv.get(ntID)) {
-				for (int ntID2 : rulesInv.get(bodyID)) {
-					if (!hasVisitedSymbol[ntID2]) {
-						if (bodySymbolCount[bodyID] == 1) {
-							ntUnitRuleCount[ntID2]--;
-							rules.get(ntID2).addAll(rules.get(ntID));
-						}
-						if (ntUnitRuleCount[ntID2] == 0) {
-							q.add(ntID2);
-							hasVisitedSymbol[ntID2] = true;
-						}
-					}
-				}
+		int[] order = freeze().fixpointEngine().unitRuleOrder();
+		boolean[] isDone = new boolean[nts.size()];
+		IntStack children = new IntStack();
+		for (int ntID : order) {
+			copyRulesOfUnitRules(ntID, isDone, children);
+			isDone[ntID] = true;
+		}
+		// The nonterminals depending on a unit cycle get the rules of the
+		// nonterminals they have unit rules to that are done.
+		for (int ntID = 0; ntID < nts.size(); ntID++) {
+			if (!isDone[ntID]) {
+				copyRulesOfUnitRules(ntID, isDone, children);
 			}
 		}
+		resetCompiledForms();
+		usefulSymbols = null;
 		return this;
 	}
+
+	/**
+	 * For every unit rule A -> B, where A has the given ID and B is done,
+	 * add the rules of B to A.
+	 */
+	private void copyRulesOfUnitRules(int ntID, boolean[] isDone,
+			IntStack children) {
+		for (int bodyID : rules.get(ntID)) {
+			if (isUnitBody(bodyID) && isDone[bodies.symbol(bodyID, 0)]) {
+				children.push(bodies.symbol(bodyID, 0));
+			}
+		}
+		while (!children.isEmpty()) {
+			for (int bodyID : rules.get(children.pop())) {
+				addRule(ntID, bodyID);
+			}
+		}
+	}
 	
 	/**
 	 * Create and return a new CFG with unit rules removed ONLY. That is, we 
@@ -787,10 +1390,11 @@ public class CFG {
 	 */
 	public CFG removeUnitRulesOnly() {
 		CFG g = new CFG();
+		int[] map = newNonterminalMap();
 		for (int ntID = 0; ntID < rules.size(); ntID++) {
 			for (int bodyID : rules.get(ntID)) {
-				if (!(bodies.get(bodyID).size() == 1 && isNonterminal(bodies.get(bodyID).get(0)))) {
-					g.addRule(nts.get(ntID) + " -> " + bodyToString(bodyID));
+				if (!isUnitBody(bodyID)) {
+					copyRule(g, map, mapNonterminal(g, map, ntID), bodyID);
 				}
 			}
 		}
@@ -798,59 +1402,154 @@ public class CFG {
 	}
 	
 	/**
-	 * Create and return a queue where each nonterminal A, such that there exist
-	 * no unit rule where A is head, is added.
+	 * Create and return an array mapping the nonterminal IDs of this CFG to
+	 * their IDs in a new CFG, where -1 means not yet added.
 	 */
-	private Queue<Integer> initiateQueueWithNonUnitNts() {
-		Queue<Integer> q = new LinkedList<Integer>();
-		for (int ntID = 0; ntID < nts.size(); ntID++) {
-			if (ntUnitRuleCount[ntID] == 0) {
-				q.add(ntID);
-				hasVisitedSymbol[ntID] = true;
-			}
+	private int[] newNonterminalMap() {
+		int[] map = new int[nts.size()];
+		Arrays.fill(map, -1);
+		return map;
+	}
+
+	/**
+	 * Return the ID in g of the nonterminal of this CFG with the given ID,
+	 * adding it to g under the same name the first time. The stages of
+	 * toCNF() build their CFG this way, so no rule is turned into a String
+	 * and parsed again, and the nonterminals get the same IDs as if they had.
+	 */
+	private int mapNonterminal(CFG g, int[] map, int ntID) {
+		if (map[ntID] == -1) {
+			String name = nts.get(ntID);
+			map[ntID] = g.addNonterminal(name, 0, name.length());
 		}
-		return q;
+		return map[ntID];
 	}
-	
+
 	/**
-	 * Label each nonterminal A with how many unit rules of the form A -> B
-	 * there exist, for any nonterminal B.
+	 * Return the ID in g of the given symbol of this CFG, like
+	 * mapNonterminal(). Terminals and epsilon have the same IDs in every CFG.
 	 */
-	private void setNtUnitRuleCount() {
-		ntUnitRuleCount = new int[nts.size()];
-		for (int ntID = 0; ntID < rules.size(); ntID++) {
-			for (int bodyID : rules.get(ntID)) {
-				if (bodies.get(bodyID).size() == 1 && isNonterminal(bodies.get(bodyID).get(0))) {
-					ntUnitRuleCount[ntID]++;
-				}
-			}
+	private int mapSymbol(CFG g, int[] map, int symbolID) {
+		return isNonterminal(symbolID) ? mapNonterminal(g, map, symbolID) : symbolID;
+	}
+
+	/**
+	 * Add the rule lhsID -> X to g, where X is the body of this CFG with the
+	 * given ID with its nonterminals mapped to g by mapNonterminal().
+	 */
+	private void copyRule(CFG g, int[] map, int lhsID, int bodyID) {
+		int length = bodies.length(bodyID);
+		int[] body = g.bodyBuffer(length);
+		for (int i = 0; i < length; i++) {
+			body[i] = mapSymbol(g, map, bodies.symbol(bodyID, i));
 		}
+		g.addRule(lhsID, body, length);
 	}
-	
-	private boolean isEpsilon(String a) {
-		return a.equals("epsilon");
+
+	/**
+	 * Like copyRule(), but with every nonterminal of the body replaced by the
+	 * root of its strongly connected component, as found by findSCCInit().
+	 */
+	private void copyRuleToSCCs(CFG g, int[] map, int lhsID, int bodyID) {
+		int length = bodies.length(bodyID);
+		int[] body = g.bodyBuffer(length);
+		for (int i = 0; i < length; i++) {
+			int symbolID = bodies.symbol(bodyID, i);
+			body[i] = isNonterminal(symbolID)
+					? mapNonterminal(g, map, scc[symbolID]) : symbolID;
+		}
+		g.addRule(lhsID, body, length);
 	}
-	
-	private boolean isEpsilon(int a) {
-		return a == epsilonID;
+
+	/**
+	 * Return bodyBuffer, grown to hold at least length symbols.
+	 */
+	private int[] bodyBuffer(int length) {
+		if (length > bodyBuffer.length) {
+			bodyBuffer = Arrays.copyOf(bodyBuffer, Math.max(2 * bodyBuffer.length,
+					length));
+		}
+		return bodyBuffer;
+	}
+
+	/**
+	 * Check if the body with the given ID is a single nonterminal, i.e. the
+	 * body of a unit rule.
+	 */
+	private boolean isUnitBody(int bodyID) {
+		return bodies.length(bodyID) == 1 && isNonterminal(bodies.symbol(bodyID, 0));
 	}
 
-	private boolean isTerminal(String a) {
-		return !Character.isUpperCase(a.charAt(0)) && !a.equals("epsilon");
+	private boolean isEpsilon(int a) {
+		return a == epsilonID;
 	}
 
 	private boolean isTerminal(int a) {
 		return a < -1;
 	}
 	
-	private boolean isNonterminal(String a) {
-		return Character.isUpperCase(a.charAt(0));
-	}
-	
 	private boolean isNonterminal(int a) {
 		return a >= 0;
 	}
 
+	/**
+	 * Create and return a CFG with the rules in the given file, one rule per
+	 * line in the form of addRule() (e.g. "A -> aBc" or "A -> epsilon").
+	 * Blank lines are skipped. The file is memory-mapped and every line is
+	 * parsed from a reused buffer of its bytes, one char per byte, so only the
+	 * names of new nonterminals are copied into Strings.
+	 */
+	public static CFG load(Path path) throws IOException {
+		CFG g = new CFG();
+		ByteCharSequence line = new ByteCharSequence();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				long window = Math.min(size - position, MAX_MAPPED_BYTES);
+				MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+						position, window);
+				int end = (int) window;
+				if (position + window < size) {
+					// Only scan the complete lines of the mapped window.
+					while (end > 0 && buf.get(end - 1) != '\n') {
+						end--;
+					}
+					if (end == 0) {
+						throw new IOException("Line too long at byte " + position);
+					}
+				}
+				for (int from = 0, to; from < end; from = to + 1) {
+					for (to = from; to < end && buf.get(to) != '\n'; to++)
+						;
+					line.set(buf, from, to - from);
+					if (CFGParser.trimStart(line, 0, to - from) < to - from) {
+						g.addRule(line);
+					}
+				}
+				position += end;
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * Write the rules of this CFG to the given file, one rule per line, so
+	 * that it can be read back with load().
+	 */
+	public void save(Path path) throws IOException {
+		try (Writer out = Files.newBufferedWriter(path, StandardCharsets.ISO_8859_1)) {
+			for (int ntID = 0; ntID < nts.size(); ntID++) {
+				for (int bodyID : rules.get(ntID)) {
+					out.write(nts.get(ntID));
+					out.write(" -> ");
+					out.write(bodyToString(bodyID));
+					out.write('\n');
+				}
+			}
+		}
+	}
+
 	/**
 	 * Format the rules of this CFG into a string. Useful for printing the CFG.
 	 */
@@ -860,9 +1559,7 @@ public class CFG {
 			String head = nts.get(i);
 			for (int bodyID : rules.get(i)) {
 				s.append(head + " -> ");
-				for (int symbolID : bodies.get(bodyID)) {
-					s.append(symbolIDToString(symbolID));
-				}
+				s.append(bodyToString(bodyID));
 				s.append(", ");
 			}
 		}
@@ -874,8 +1571,8 @@ public class CFG {
 	 */
 	private String bodyToString(int bodyID) {
 		StringBuilder s = new StringBuilder();
-		for (int symbolID : bodies.get(bodyID)) {
-			s.append(symbolIDToString(symbolID));
+		for (int i = 0; i < bodies.length(bodyID); i++) {
+			s.append(symbolIDToString(bodies.symbol(bodyID, i)));
 		}
 		return s.toString();
 	}
@@ -1,62 +1,109 @@
 public class CFGParser {
-	
-	public static String getLeftHandSide(String s) {
-		return s.split(" *-> *")[0].trim();
-	}
-	
-	public static String getRightHandSide(String s) {
-		return s.split(" *-> *")[1].trim();
-	}
 
 	/**
-	 * Split a string s into an array of symbols.
-	 * 
-	 * Example: "aaS1bS2c" -> ["a", "a", "S1", "b", "S2", "c"]
+	 * Return the index of the "->" separating the head from the body of rule.
 	 */
-	public static String[] splitIntoSymbols(String s) {
-		if (s.equals("epsilon")) {
-			return new String[]{s};
+	static int findArrow(CharSequence rule) {
+		for (int i = 0; i + 1 < rule.length(); i++) {
+			if (rule.charAt(i) == '-' && rule.charAt(i + 1) == '>') {
+				return i;
+			}
 		}
-		int symbolsCount = getSymbolCount(s);
-		String[] symbols = new String[symbolsCount];
-		for (int i = 0, j = 0; i < symbolsCount; i++) {
-			symbols[i] = extractSymbol(s, j);
-			j += symbols[i].length();
+		throw new IllegalArgumentException("Not a rule: " + rule);
+	}
+
+	/**
+	 * Return the index of the first character of s[from..to-1] that is not
+	 * whitespace, or to if there is none.
+	 */
+	static int trimStart(CharSequence s, int from, int to) {
+		while (from < to && s.charAt(from) <= ' ') {
+			from++;
 		}
-		return symbols;
+		return from;
 	}
 
 	/**
-	 * Get the symbol at position i in s.
+	 * Return the index after the last character of s[from..to-1] that is not
+	 * whitespace, or from if there is none.
 	 */
-	private static String extractSymbol(String s, int start) {
-		if (start >= s.length() || start < 0) {
-			return null;
+	static int trimEnd(CharSequence s, int from, int to) {
+		while (to > from && s.charAt(to - 1) <= ' ') {
+			to--;
 		}
-		int end = start + 1;
-		while (end < s.length() && Character.isDigit(s.charAt(end))) {
-			end++;
+		return to;
+	}
+
+	/**
+	 * Return the index after the symbol starting at s[start], i.e. after the
+	 * digits following its first character, but not beyond end.
+	 */
+	static int symbolEnd(CharSequence s, int start, int end) {
+		int i = start + 1;
+		while (i < end && Character.isDigit(s.charAt(i))) {
+			i++;
 		}
-		return s.substring(start, end);
+		return i;
 	}
 
 	/**
-	 * Count the number of symbols in the string s.
+	 * Check if s[start..end-1] is "epsilon".
 	 */
-	private static int getSymbolCount(String s) {
-		int count = 0;
-		for (int i = 0; i < s.length(); i++) {
-			if (!Character.isDigit(s.charAt(i))) {
-				count++;
+	static boolean isEpsilon(CharSequence s, int start, int end) {
+		if (end - start != 7) {
+			return false;
+		}
+		for (int i = 0; i < 7; i++) {
+			if (s.charAt(start + i) != "epsilon".charAt(i)) {
+				return false;
 			}
 		}
-		return count++;
+		return true;
 	}
 	
+	/**
+	 * Return the head of rule, e.g. "B1" for "B1 -> aAbB1c".
+	 */
+	public static String getLeftHandSide(String rule) {
+		int arrow = findArrow(rule);
+		int start = trimStart(rule, 0, arrow);
+		return rule.substring(start, trimEnd(rule, start, arrow));
+	}
+
+	/**
+	 * Return the body of rule, e.g. "aAbB1c" for "B1 -> aAbB1c".
+	 */
+	public static String getRightHandSide(String rule) {
+		int start = trimStart(rule, findArrow(rule) + 2, rule.length());
+		return rule.substring(start, trimEnd(rule, start, rule.length()));
+	}
+
+	/**
+	 * Split a string s into an array of symbols.
+	 * 
+	 * Example: "aaS1bS2c" -> ["a", "a", "S1", "b", "S2", "c"]
+	 */
+	public static String[] splitIntoSymbols(String s) {
+		if (s.equals("epsilon")) {
+			return new String[]{s};
+		}
+		int symbolsCount = 0;
+		for (int i = 0; i < s.length(); i = symbolEnd(s, i, s.length())) {
+			symbolsCount++;
+		}
+		String[] symbols = new String[symbolsCount];
+		for (int i = 0, j = 0; i < symbolsCount; i++) {
+			int end = symbolEnd(s, j, s.length());
+			symbols[i] = s.substring(j, end);
+			j = end;
+		}
+		return symbols;
+	}
+
 	public static int terminalToInt(String a) {
-		return -(int) a.charAt(0);
+		return terminalToInt(a.charAt(0));
 	}
-	
+
 	public static int terminalToInt(char a) {
 		return -(int) a;
 	}
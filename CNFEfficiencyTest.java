@@ -0,0 +1,58 @@
+import java.util.Random;
+
+public class CNFEfficiencyTest {
+
+	public static void main(String[] args) {
+		final int LOOP_COUNT = 5;
+		final int I_MAX = 2000000;
+		System.out.println("Time efficiency test for converting to CNF:");
+
+		// Test with randomly built rules.
+		for (int i = 16000; i < I_MAX; i *= 2) {
+			CFG g = RandomCFGGenerator.createRandomCFG(i);
+			long totalTime = 0;
+			int noOfRules = 0;
+			for (int j = 0; j < LOOP_COUNT; j++) {
+				long startTime = System.nanoTime();
+				noOfRules = g.toCNF().noOfRules();
+				totalTime += System.nanoTime() - startTime;
+			}
+			System.out.println(
+					"Size of the CFG: " + g.size() + ", Average time: "
+					+ (totalTime / 1000000 / LOOP_COUNT) + " ms, Rules in CNF: "
+					+ noOfRules);
+		}
+		System.out.println();
+
+		// Compare the CNF with and without shared substrings of long bodies.
+		System.out.println("Converting to CNF with and without sharing, and "
+				+ "running derives() on 20 random words of length 64:");
+		for (int i = 8000; i <= 32000; i *= 2) {
+			CFG g = RandomCFGGenerator.createRandomCFG(i);
+			for (boolean share : new boolean[] {false, true}) {
+				long startTime = System.nanoTime();
+				CFG cnf = g.toCNF(share);
+				long cnfTime = System.nanoTime() - startTime;
+				cnf.derives("a");
+				Random random = new Random(1);
+				long derivesTime = 0;
+				for (int j = 0; j < 20; j++) {
+					StringBuilder word = new StringBuilder();
+					for (int k = 0; k < 64; k++) {
+						word.append((char) ('a' + random.nextInt(26)));
+					}
+					startTime = System.nanoTime();
+					cnf.derives(word.toString());
+					derivesTime += System.nanoTime() - startTime;
+				}
+				System.out.println("Size of the CFG: " + g.size() + ", Sharing: "
+						+ share + ", Time: " + (cnfTime / 1000000)
+						+ " ms, Nonterminals in CNF: "
+						+ cnf.freeze().noOfNonterminals() + ", Rules in CNF: "
+						+ cnf.noOfRules() + ", Average derives() time: "
+						+ (derivesTime / 1000000 / 20) + " ms");
+			}
+		}
+		System.out.println();
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ * This class is the chart of the CYK algorithm for a word of length n. Cell
+ * (i, j) is the set of nonterminals deriving word[j..j+i], as a bitset of w
+ * longs. Only the n(n+1)/2 cells with i + j < n exist, and they are all stored
+ * in one long array, diagonal after diagonal, so the chart takes
+ * n(n+1)/2 * w * 8 bytes and no per-cell objects.
+ *
+ * A chart can be reused for any word of at most the length it was created
+ * for. Every cell is written before it is read, so it is never cleared.
+ */
+final class CYKChart {
+	final int maxN;
+	final int w;
+	final long[] cells;
+	int n;
+
+	CYKChart(int maxN, int w) {
+		long size = (long) maxN * (maxN + 1) / 2 * w;
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("The word is too long for a CYK "
+					+ "chart: " + maxN + " symbols");
+		}
+		this.maxN = maxN;
+		this.w = w;
+		this.n = maxN;
+		cells = new long[(int) size];
+	}
+
+	/**
+	 * Lay out the chart for a word of length n.
+	 */
+	void reset(int n) {
+		if (n > maxN) {
+			throw new IllegalArgumentException("The word is longer than "
+					+ maxN + " symbols: " + n + " symbols");
+		}
+		this.n = n;
+	}
+
+	/**
+	 * Return the index in cells of the first long of cell (i, j).
+	 */
+	int offset(int i, int j) {
+		// Diagonal i is preceded by the diagonals of length n, n-1, ..., n-i+1.
+		return (int) ((long) i * (2 * n - i + 1) / 2 + j) * w;
+	}
+}
@@ -158,4 +158,134 @@ public class CYKCorrectnessTest {
 		assertFalse(g.derives("((a)((aa)))((a)((a))"));
 	}
 
-}
\ No newline at end of file
+	// Words to check with the CFG of createBalancedParanthesisCFG().
+	private final String[] words = {"a", "(a)", "(aaa)", "(((aaa)))",
+			"(a)(a)(a)", "((a)(a))", "(a)((aa)((aaa))(a))", "(", ")", "(((a))",
+			"((a)))", ")a(", ")))aa(((", "(a)(a)(", "((a)((aa)))((a)((a))"};
+
+	/**
+	 * Return a CFG in CNF of balanced parentheses around nonempty strings of
+	 * a's.
+	 */
+	private CFG createBalancedParanthesisCFG() {
+		CFG g = new CFG();
+		g.addRule("S -> SS");
+		g.addRule("S -> LS1");
+		g.addRule("S -> AA1");
+		g.addRule("S -> a");
+		g.addRule("S1 -> SR");
+		g.addRule("L -> (");
+		g.addRule("R -> )");
+		g.addRule("A -> a");
+		g.addRule("A1 -> AA1");
+		g.addRule("A1 -> a");
+		return g;
+	}
+
+	/*
+	 * N0 -> a, Nk -> N(k-1)N0 for k = 1..99, S -> N99N0, should derive
+	 * exactly a^101. The chart cells then span more than one long.
+	 */
+	@Test
+	public void grammarWithMoreThan64Nonterminals() {
+		CFG g = new CFG();
+		g.addRule("N0 -> a");
+		for (int k = 1; k < 100; k++) {
+			g.addRule("N" + k + " -> N" + (k - 1) + "N0");
+		}
+		g.addRule("S -> N99N0");
+		StringBuilder word = new StringBuilder();
+		for (int k = 0; k < 100; k++) {
+			word.append("a");
+		}
+		assertFalse(g.derives(word.toString()));
+		assertTrue(g.derives(word.append("a").toString()));
+		assertFalse(g.derives(word.append("a").toString()));
+	}
+
+	@Test
+	public void emptyWord() {
+		CFG g = new CFG();
+		g.addRule("S -> a");
+		assertFalse(g.derives(""));
+		g.addRule("S -> epsilon");
+		assertTrue(g.derives(""));
+	}
+
+	/*
+	 * The compiled rules must be rebuilt when a rule is added after a word
+	 * has already been checked.
+	 */
+	@Test
+	public void addRuleAfterDerives() {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("A -> a");
+		g.addRule("B -> b");
+		assertTrue(g.derives("ab"));
+		assertFalse(g.derives("ac"));
+		g.addRule("B -> c");
+		assertTrue(g.derives("ac"));
+		assertFalse(g.derives("aab"));
+		g.addRule("A -> AA");
+		assertTrue(g.derives("aab"));
+	}
+
+	/*
+	 * Valiant's algorithm should give the same answers as CYK, also for words
+	 * long enough to be multiplied in blocks of 64 columns and more.
+	 */
+	@Test
+	public void valiantShouldAgreeWithCYK() {
+		CFG g = createBalancedParanthesisCFG();
+		assertTrue(g.derives("(a)((aa)((aaa))(a))", CFG.Algorithm.VALIANT));
+		assertFalse(g.derives("((a)((aa)))((a)((a))", CFG.Algorithm.VALIANT));
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			word.append("(a)(aa");
+		}
+		for (int i = 0; i < 40; i++) {
+			word.append(")");
+		}
+		assertTrue(g.derives(word.toString(), CFG.Algorithm.VALIANT));
+		assertFalse(g.derives(word.append(")").toString(), CFG.Algorithm.VALIANT));
+		assertFalse(g.derives(word.toString()));
+	}
+
+	/*
+	 * The sparse chart should give the same answers as CYK.
+	 */
+	@Test
+	public void sparseChartShouldAgreeWithCYK() {
+		CFG g = createBalancedParanthesisCFG();
+		for (String word : words) {
+			assertEquals(g.derives(word), g.derives(word, CFG.Algorithm.SPARSE));
+		}
+	}
+
+	@Test
+	public void recognizerShouldAgreeWithCYK() {
+		CFG g = createBalancedParanthesisCFG();
+		Recognizer recognizer = g.recognizer(20);
+		for (String word : words) {
+			assertEquals(g.derives(word), recognizer.derives(word));
+		}
+	}
+
+	@Test
+	public void recognizerShouldRejectEmptyAndUnknownWords() {
+		Recognizer recognizer = createBalancedParanthesisCFG().recognizer(20);
+		assertFalse(recognizer.derives(""));
+		assertFalse(recognizer.derives("b"));
+		assertFalse(recognizer.derives("(b)"));
+		assertTrue(recognizer.derives("(a)"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recognizerShouldRejectTooLongWords() {
+		CFG g = new CFG();
+		g.addRule("S -> a");
+		g.recognizer(4).derives("aaaaa");
+	}
+
+}
@@ -0,0 +1,252 @@
+import java.util.Arrays;
+
+/**
+ * This class is a compiled form of the rules of a CFG in CNF, used by the CYK
+ * algorithm. It is built once from the rules of the grammar and consists of:
+ * 		A terminal table, mapping each terminal to the set of nonterminals
+ * 		that produce it.
+ * 		A pair index, mapping each left child B to the right children C that
+ * 		appear next to it, and each pair (B, C) to the set of heads A of the
+ * 		rules A -> BC.
+ * 		The same pairs indexed by their right child C.
+ *
+ * Sets of nonterminals are bitsets packed into longs, w longs per set.
+ */
+final class CYKTable {
+	final int r;
+	final int w;
+	final int startSymbolID;
+	// terminalNts[c] is the set of A with A -> c, or null if there is none.
+	final long[][] terminalNts;
+	// The pairs (B, C) with B = b are at indexes pairStart[b]..pairStart[b+1].
+	final int[] pairStart;
+	final int[] pairRight;
+	final long[] pairHeads;
+	final long[] rightMask;
+	final long[] binaryHeads;
+	// The pairs (B, C) with C = c are pairsByRight[rightStart[c]..].
+	final int[] pairLeft;
+	final int[] rightStart;
+	final int[] pairsByRight;
+
+	/**
+	 * Compile the rules A -> c given by the arrays unitHead and unitTerminal
+	 * (holding terminal IDs) and the rules A -> BC given by the arrays
+	 * binaryHead, binaryLeft and binaryRight, over r nonterminals.
+	 */
+	CYKTable(int r, int startSymbolID, int[] unitHead, int[] unitTerminal,
+			int noOfUnitRules, int[] binaryHead, int[] binaryLeft,
+			int[] binaryRight, int noOfBinaryRules) {
+		this.r = r;
+		this.w = (r + 63) >>> 6;
+		this.startSymbolID = startSymbolID;
+
+		int maxChar = -1;
+		for (int i = 0; i < noOfUnitRules; i++) {
+			maxChar = Math.max(maxChar, -unitTerminal[i]);
+		}
+		terminalNts = new long[maxChar + 1][];
+		for (int i = 0; i < noOfUnitRules; i++) {
+			int c = -unitTerminal[i];
+			if (terminalNts[c] == null) {
+				terminalNts[c] = new long[w];
+			}
+			terminalNts[c][unitHead[i] >>> 6] |= 1L << unitHead[i];
+		}
+
+		// Sort the binary rules on (B, C) with a counting sort on each key.
+		int[] byRight = sortedIndexes(binaryRight, noOfBinaryRules, null);
+		int[] order = sortedIndexes(binaryLeft, noOfBinaryRules, byRight);
+		pairStart = new int[r + 1];
+		int noOfPairs = 0;
+		for (int i = 0; i < noOfBinaryRules; i++) {
+			int x = order[i];
+			if (i == 0 || binaryLeft[x] != binaryLeft[order[i - 1]]
+					|| binaryRight[x] != binaryRight[order[i - 1]]) {
+				pairStart[binaryLeft[x] + 1]++;
+				noOfPairs++;
+			}
+		}
+		for (int b = 0; b < r; b++) {
+			pairStart[b + 1] += pairStart[b];
+		}
+		pairRight = new int[noOfPairs];
+		pairHeads = new long[noOfPairs * w];
+		rightMask = new long[r * w];
+		binaryHeads = new long[w];
+		for (int i = 0, p = -1; i < noOfBinaryRules; i++) {
+			int x = order[i];
+			int b = binaryLeft[x];
+			int c = binaryRight[x];
+			int a = binaryHead[x];
+			if (i == 0 || b != binaryLeft[order[i - 1]]
+					|| c != binaryRight[order[i - 1]]) {
+				pairRight[++p] = c;
+				rightMask[b * w + (c >>> 6)] |= 1L << c;
+			}
+			pairHeads[p * w + (a >>> 6)] |= 1L << a;
+			binaryHeads[a >>> 6] |= 1L << a;
+		}
+
+		pairLeft = new int[noOfPairs];
+		rightStart = new int[r + 1];
+		for (int b = 0; b < r; b++) {
+			for (int p = pairStart[b]; p < pairStart[b + 1]; p++) {
+				pairLeft[p] = b;
+				rightStart[pairRight[p] + 1]++;
+			}
+		}
+		for (int c = 0; c < r; c++) {
+			rightStart[c + 1] += rightStart[c];
+		}
+		pairsByRight = new int[noOfPairs];
+		int[] next = rightStart.clone();
+		for (int p = 0; p < noOfPairs; p++) {
+			pairsByRight[next[pairRight[p]]++] = p;
+		}
+	}
+
+	/**
+	 * Create a CYKTable from the arrays of one that was already compiled,
+	 * e.g. one read back from a GrammarSnapshot.
+	 */
+	CYKTable(int r, int startSymbolID, long[][] terminalNts, int[] pairStart,
+			int[] pairRight, long[] pairHeads, long[] rightMask,
+			long[] binaryHeads, int[] pairLeft, int[] rightStart,
+			int[] pairsByRight) {
+		this.r = r;
+		this.w = (r + 63) >>> 6;
+		this.startSymbolID = startSymbolID;
+		this.terminalNts = terminalNts;
+		this.pairStart = pairStart;
+		this.pairRight = pairRight;
+		this.pairHeads = pairHeads;
+		this.rightMask = rightMask;
+		this.binaryHeads = binaryHeads;
+		this.pairLeft = pairLeft;
+		this.rightStart = rightStart;
+		this.pairsByRight = pairsByRight;
+	}
+
+	/**
+	 * Return the indexes 0..count-1 stably sorted on key[index], starting
+	 * from the order given by in (or the identity if in is null).
+	 */
+	private int[] sortedIndexes(int[] key, int count, int[] in) {
+		int[] start = new int[r + 1];
+		for (int i = 0; i < count; i++) {
+			start[key[i] + 1]++;
+		}
+		for (int b = 0; b < r; b++) {
+			start[b + 1] += start[b];
+		}
+		int[] out = new int[count];
+		for (int i = 0; i < count; i++) {
+			int x = in == null ? i : in[i];
+			out[start[key[x]]++] = x;
+		}
+		return out;
+	}
+
+	/**
+	 * Return the set of nonterminals that produce the given character, or
+	 * null if there is none.
+	 */
+	long[] terminal(char c) {
+		return c < terminalNts.length ? terminalNts[c] : null;
+	}
+
+	/**
+	 * Set the cells (0, j) of the chart to the nonterminals producing the
+	 * symbols of word. Return false if some symbol is produced by none.
+	 */
+	boolean setTerminalCells(CharSequence word, CYKChart chart) {
+		for (int j = 0; j < word.length(); j++) {
+			long[] nts = terminal(word.charAt(j));
+			if (nts == null) {
+				return false;
+			}
+			System.arraycopy(nts, 0, chart.cells, j * w, w);
+		}
+		return true;
+	}
+
+	/**
+	 * Check if the start symbol is in the cell of the whole word.
+	 */
+	boolean derivesWord(CYKChart chart) {
+		return containsStartSymbol(chart.cells, chart.offset(chart.n - 1, 0));
+	}
+
+	/**
+	 * Fill the cells (i, from..to-1) of the chart. All cells of shorter spans
+	 * must already be filled.
+	 */
+	void fillCells(CYKChart chart, int i, int from, int to) {
+		final long[] cells = chart.cells;
+		for (int j = from; j < to; j++) {
+			int cell = chart.offset(i, j);
+			Arrays.fill(cells, cell, cell + w, 0L);
+			for (int k = 0; k < i && !isSaturated(cells, cell); k++) {
+				combine(cells, chart.offset(k, j),
+						chart.offset(i - k - 1, j + k + 1), cell);
+			}
+		}
+	}
+
+	/**
+	 * Add to the set at offset cell every head A of a rule A -> BC such that
+	 * B is in the set at offset left and C is in the set at offset right.
+	 */
+	void combine(long[] cells, int left, int right, int cell) {
+		for (int x = 0; x < w; x++) {
+			for (long bits = cells[left + x]; bits != 0; bits &= bits - 1) {
+				int b = (x << 6) + Long.numberOfTrailingZeros(bits);
+				if (!intersects(cells, right, rightMask, b * w)) {
+					continue;
+				}
+				for (int p = pairStart[b]; p < pairStart[b + 1]; p++) {
+					int c = pairRight[p];
+					if ((cells[right + (c >>> 6)] & 1L << c) != 0) {
+						for (int y = 0, q = p * w; y < w; y++, q++) {
+							cells[cell + y] |= pairHeads[q];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check if the set at offset cell already holds the head of every binary
+	 * rule, in which case no further split can add anything to it.
+	 */
+	boolean isSaturated(long[] cells, int cell) {
+		for (int x = 0; x < w; x++) {
+			if ((binaryHeads[x] & ~cells[cell + x]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check if the start symbol is in the set at offset cell.
+	 */
+	boolean containsStartSymbol(long[] cells, int cell) {
+		return (cells[cell + (startSymbolID >>> 6)] & 1L << startSymbolID) != 0;
+	}
+
+	/**
+	 * Check if the set in a at offset aOffset shares at least one bit with
+	 * the set in b at offset bOffset.
+	 */
+	private boolean intersects(long[] a, int aOffset, long[] b, int bOffset) {
+		for (int x = 0; x < w; x++) {
+			if ((a[aOffset + x] & b[bOffset + x]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
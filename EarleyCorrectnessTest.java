@@ -0,0 +1,144 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class EarleyCorrectnessTest {
+
+	private void generate(StringBuilder sb, int n, ArrayList<String> words) {
+
+		char[] alphabet = "ab".toCharArray();
+		if (n == sb.length()) {
+			words.add(sb.toString());
+			return;
+		}
+		for (char letter : alphabet) {
+			sb.setCharAt(n, letter);
+			generate(sb, n + 1, words);
+		}
+	}
+
+	private boolean earley(CFG g, String word) {
+		return g.derives(word, CFG.Algorithm.EARLEY);
+	}
+
+	/*
+	 * S -> aSb, S -> epsilon, should derive exactly a^n b^n.
+	 */
+	@Test
+	public void epsilonRules() {
+		CFG g = new CFG();
+		g.addRule("S -> aSb");
+		g.addRule("S -> epsilon");
+		assertTrue(earley(g, ""));
+		assertTrue(earley(g, "ab"));
+		assertTrue(earley(g, "aaabbb"));
+		assertFalse(earley(g, "a"));
+		assertFalse(earley(g, "aabbb"));
+		assertFalse(earley(g, "abab"));
+	}
+
+	/*
+	 * Nullable nonterminals in the middle of bodies, and unit rules.
+	 */
+	@Test
+	public void nullableNonterminalsAndUnitRules() {
+		CFG g = new CFG();
+		g.addRule("S -> ABAcA");
+		g.addRule("A -> epsilon");
+		g.addRule("A -> a");
+		g.addRule("B -> C");
+		g.addRule("C -> D");
+		g.addRule("D -> b");
+		g.addRule("D -> A");
+		assertTrue(earley(g, "c"));
+		assertTrue(earley(g, "bc"));
+		assertTrue(earley(g, "abaca"));
+		assertTrue(earley(g, "aaaca"));
+		assertFalse(earley(g, "abacaa"));
+		assertFalse(earley(g, "bb"));
+		assertFalse(earley(g, ""));
+	}
+
+	/*
+	 * Left and right recursive grammars should both derive long words.
+	 */
+	@Test
+	public void leftAndRightRecursion() {
+		CFG right = new CFG();
+		right.addRule("S -> aS");
+		right.addRule("S -> b");
+		CFG left = new CFG();
+		left.addRule("S -> Sa");
+		left.addRule("S -> b");
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			word.append("a");
+		}
+		assertTrue(earley(right, word.toString() + "b"));
+		assertFalse(earley(right, "b" + word.toString()));
+		assertTrue(earley(left, "b" + word.toString()));
+		assertFalse(earley(left, word.toString() + "b"));
+	}
+
+	/*
+	 * A long chain of unit rules, added so that the deepest nonterminals get
+	 * the lowest IDs, should not make the transitive items recurse deeply.
+	 */
+	@Test
+	public void longChainOfUnitRules() {
+		CFG g = new CFG();
+		int n = 100000;
+		for (int k = n; k > 1; k--) {
+			g.addRule("A" + (k - 1) + " -> A" + k);
+		}
+		g.addRule("S -> A1");
+		g.addRule("A" + n + " -> aS");
+		g.addRule("A" + n + " -> b");
+		assertTrue(earley(g, "aaab"));
+		assertFalse(earley(g, "aaa"));
+	}
+
+	/*
+	 * Cyclic unit rules must not make the recognizer loop.
+	 */
+	@Test
+	public void cyclicUnitRules() {
+		CFG g = new CFG();
+		g.addRule("S -> A");
+		g.addRule("A -> S");
+		g.addRule("A -> aA");
+		g.addRule("S -> b");
+		assertTrue(earley(g, "b"));
+		assertTrue(earley(g, "aaab"));
+		assertFalse(earley(g, "aaa"));
+	}
+
+	/*
+	 * The grammar from CNFConversionCorrectnessTest should derive the same
+	 * nonempty words with Earley's algorithm as its CNF does with CYK.
+	 */
+	@Test
+	public void shouldAgreeWithCYKOnCNF() {
+		CFG g = new CFG();
+		g.addRule("S -> ASA");
+		g.addRule("S -> aB");
+		g.addRule("A -> B");
+		g.addRule("A -> S");
+		g.addRule("B -> b");
+		g.addRule("B -> epsilon");
+		CFG cnf = g.toCNF();
+
+		ArrayList<String> words = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 1; i <= 8; i++) {
+			sb.setLength(i);
+			generate(sb, 0, words);
+		}
+		for (String word : words) {
+			assertEquals(cnf.derives(word), earley(g, word));
+		}
+	}
+
+}
@@ -0,0 +1,412 @@
+import java.util.Arrays;
+
+/**
+ * This class checks if a word can be derived from an arbitrary CFG (which
+ * does not have to be in CNF) using Earley's algorithm, with two
+ * improvements:
+ * 		Nullable nonterminals are handled as proposed by Aycock and Horspool:
+ * 		when a nullable nonterminal B is predicted in A -> x.By, the item
+ * 		A -> xB.y is added as well, so epsilon rules need no special care.
+ * 		Right recursion is handled as proposed by Leo: a chain of completions
+ * 		A -> xB. that each have a single item waiting for them is memoized as
+ * 		one transitive item, so it is not walked again for every position.
+ * This executes in linear time for LR-regular grammars and in cubic time in
+ * the worst case.
+ *
+ * An item is a dotted rule (an LR(0) item) and an origin. The LR(0) items of
+ * a rule of length l are numbered consecutively, from the item with the dot
+ * first to the item with the dot last.
+ */
+final class EarleyRecognizer {
+	private static final int COMPLETE = Integer.MIN_VALUE;
+	private static final long NONE = -1;
+	private static final long COMPUTING = -2;
+	private static final long UNKNOWN = -3;
+
+	private final int startItem;		// S' -> .S
+	private final int acceptItem;		// S' -> S.
+	// postdot[x] is the symbol after the dot of the LR(0) item x.
+	private final int[] postdot;
+	private final int[] lhs;
+	// The rules with head A start at the LR(0) items
+	// firstItems[ruleStart[A]..ruleStart[A+1]-1].
+	private final int[] ruleStart;
+	private final int[] firstItems;
+	private final boolean[] isNullable;
+
+	/**
+	 * Compile the rules ruleHead[x] -> ruleBody[x] over r nonterminals, where
+	 * the bodies hold symbol IDs and epsilon rules have empty bodies.
+	 */
+	EarleyRecognizer(int r, int startSymbolID, int[] ruleHead, int[][] ruleBody,
+			int noOfRules) {
+		// The augmented start symbol S' = r has the single rule S' -> S.
+		int noOfItems = 2;
+		for (int x = 0; x < noOfRules; x++) {
+			noOfItems += ruleBody[x].length + 1;
+		}
+		postdot = new int[noOfItems];
+		lhs = new int[noOfItems];
+		ruleStart = new int[r + 2];
+		firstItems = new int[noOfRules];
+		for (int x = 0; x < noOfRules; x++) {
+			ruleStart[ruleHead[x] + 1]++;
+		}
+		for (int A = 0; A <= r; A++) {
+			ruleStart[A + 1] += ruleStart[A];
+		}
+		int[] next = ruleStart.clone();
+		int item = 0;
+		for (int x = 0; x < noOfRules; x++) {
+			firstItems[next[ruleHead[x]]++] = item;
+			for (int symbolID : ruleBody[x]) {
+				lhs[item] = ruleHead[x];
+				postdot[item++] = symbolID;
+			}
+			lhs[item] = ruleHead[x];
+			postdot[item++] = COMPLETE;
+		}
+		startItem = item;
+		lhs[item] = r;
+		postdot[item++] = startSymbolID;
+		acceptItem = item;
+		lhs[item] = r;
+		postdot[item] = COMPLETE;
+		isNullable = findNullableNonterminals(r, ruleHead, ruleBody, noOfRules);
+	}
+
+	/**
+	 * Find the nonterminals that derive epsilon, by counting for each rule
+	 * the symbols of its body that are not yet known to be nullable.
+	 */
+	private static boolean[] findNullableNonterminals(int r, int[] ruleHead,
+			int[][] ruleBody, int noOfRules) {
+		int[] count = new int[noOfRules];
+		int[] occurrenceStart = new int[r + 1];
+		for (int x = 0; x < noOfRules; x++) {
+			for (int symbolID : ruleBody[x]) {
+				if (symbolID < 0) {
+					count[x] = -1;		// Contains a terminal.
+					break;
+				}
+				count[x]++;
+			}
+			if (count[x] > 0) {
+				for (int symbolID : ruleBody[x]) {
+					occurrenceStart[symbolID + 1]++;
+				}
+			}
+		}
+		for (int A = 0; A < r; A++) {
+			occurrenceStart[A + 1] += occurrenceStart[A];
+		}
+		int[] occurrences = new int[occurrenceStart[r]];
+		int[] next = occurrenceStart.clone();
+		for (int x = 0; x < noOfRules; x++) {
+			if (count[x] > 0) {
+				for (int symbolID : ruleBody[x]) {
+					occurrences[next[symbolID]++] = x;
+				}
+			}
+		}
+		boolean[] isNullable = new boolean[r + 1];
+		int[] q = new int[r];
+		int head = 0;
+		int tail = 0;
+		for (int x = 0; x < noOfRules; x++) {
+			if (count[x] == 0 && !isNullable[ruleHead[x]]) {
+				isNullable[ruleHead[x]] = true;
+				q[tail++] = ruleHead[x];
+			}
+		}
+		while (head < tail) {
+			int A = q[head++];
+			for (int y = occurrenceStart[A]; y < occurrenceStart[A + 1]; y++) {
+				int x = occurrences[y];
+				if (--count[x] == 0 && !isNullable[ruleHead[x]]) {
+					isNullable[ruleHead[x]] = true;
+					q[tail++] = ruleHead[x];
+				}
+			}
+		}
+		return isNullable;
+	}
+
+	/**
+	 * Check if word can be derived.
+	 */
+	boolean derives(CharSequence word) {
+		return new Chart(word).recognize();
+	}
+
+	/**
+	 * The Earley sets of one word. All sets are stored after each other in
+	 * itemLr0 and itemOrigin, where set i starts at setStart[i].
+	 */
+	private final class Chart {
+		private final CharSequence word;
+		private final int n;
+		private int[] itemLr0 = new int[64];
+		private int[] itemOrigin = new int[64];
+		private int noOfItems;
+		private final int[] setStart;
+		// The items of set j with a nonterminal B after the dot, as keys
+		// (B << 32 | item index) sorted in postKeys[postStart[j]..].
+		private long[] postKeys = new long[64];
+		// leoTops[y] is the transitive item of the key postKeys[y] if it is
+		// the only key of its set with that nonterminal, or UNKNOWN.
+		private long[] leoTops = new long[64];
+		private final int[] postStart;
+		private int noOfPostKeys;
+		// The items scanned into the next set while the current is built.
+		private int[] scannedLr0 = new int[16];
+		private int[] scannedOrigin = new int[16];
+		private int noOfScanned;
+		private final int[] predictedIn;
+		private final IntStack leoChain = new IntStack();
+		// The items of the current set, as keys (lr0 << 32 | origin).
+		private long[] seen = new long[64];
+		private int[] seenStamp = new int[64];
+		private int noOfSeen;
+		private int stamp;
+		private int current;
+
+		Chart(CharSequence word) {
+			this.word = word;
+			n = word.length();
+			setStart = new int[n + 2];
+			postStart = new int[n + 2];
+			predictedIn = new int[ruleStart.length];
+			Arrays.fill(predictedIn, -1);
+		}
+
+		boolean recognize() {
+			scannedLr0[0] = startItem;
+			scannedOrigin[0] = 0;
+			noOfScanned = 1;
+			for (int i = 0; i <= n; i++) {
+				if (noOfScanned == 0) {
+					return false;
+				}
+				startSet(i);
+				for (int p = setStart[i]; p < noOfItems; p++) {
+					process(i, itemLr0[p], itemOrigin[p]);
+				}
+				finishSet(i);
+			}
+			return contains(acceptItem, 0);
+		}
+
+		/**
+		 * Start set i with the items scanned into it.
+		 */
+		private void startSet(int i) {
+			current = i;
+			setStart[i] = noOfItems;
+			stamp++;
+			noOfSeen = 0;
+			int count = noOfScanned;
+			noOfScanned = 0;
+			for (int y = 0; y < count; y++) {
+				add(scannedLr0[y], scannedOrigin[y]);
+			}
+		}
+
+		private void process(int i, int lr0, int origin) {
+			int X = postdot[lr0];
+			if (X == COMPLETE) {
+				// Completions with origin i are covered by the predictor.
+				if (origin < i) {
+					complete(lhs[lr0], origin);
+				}
+			} else if (X >= 0) {
+				if (predictedIn[X] != i) {
+					predictedIn[X] = i;
+					for (int y = ruleStart[X]; y < ruleStart[X + 1]; y++) {
+						add(firstItems[y], i);
+					}
+				}
+				if (isNullable[X]) {
+					add(lr0 + 1, origin);
+				}
+			} else if (i < n && X == CFGParser.terminalToInt(word.charAt(i))) {
+				if (noOfScanned == scannedLr0.length) {
+					scannedLr0 = Arrays.copyOf(scannedLr0, 2 * noOfScanned);
+					scannedOrigin = Arrays.copyOf(scannedOrigin, 2 * noOfScanned);
+				}
+				scannedLr0[noOfScanned] = lr0 + 1;
+				scannedOrigin[noOfScanned++] = origin;
+			}
+		}
+
+		/**
+		 * Advance every item of set j that waits for B, or add the memoized
+		 * top of the chain of completions if there is one.
+		 */
+		private void complete(int B, int j) {
+			long top = leoItem(j, B);
+			if (top != NONE) {
+				add((int) (top >>> 32), (int) top);
+				return;
+			}
+			for (int y = lowerBound(j, B), to = lowerBound(j, B + 1); y < to; y++) {
+				int p = (int) postKeys[y];
+				add(itemLr0[p] + 1, itemOrigin[p]);
+			}
+		}
+
+		/**
+		 * Return the transitive item of B in the finished set j, as
+		 * (lr0 << 32 | origin), or NONE if there is none. There is one if
+		 * exactly one item A -> x.B of set j waits for B, in which case it is
+		 * the transitive item of A in the origin set of that item, or else
+		 * A -> xB. itself.
+		 */
+		private long leoItem(int j, int B) {
+			// Walk down the chain to a memoized item, pushing the keys on the
+			// way, and then memoize the top for each of them on the way back.
+			leoChain.clear();
+			long top = NONE;
+			while (true) {
+				int from = lowerBound(j, B);
+				if (lowerBound(j, B + 1) - from != 1) {
+					break;
+				}
+				if (leoTops[from] != UNKNOWN) {
+					top = leoTops[from] == COMPUTING ? NONE : leoTops[from];
+					break;
+				}
+				int p = (int) postKeys[from];
+				int lr0 = itemLr0[p];
+				if (postdot[lr0 + 1] != COMPLETE) {
+					leoTops[from] = NONE;
+					break;
+				}
+				leoTops[from] = COMPUTING;
+				leoChain.push(from);
+				j = itemOrigin[p];
+				B = lhs[lr0];
+			}
+			while (!leoChain.isEmpty()) {
+				int y = leoChain.pop();
+				if (top == NONE) {
+					int p = (int) postKeys[y];
+					top = (long) (itemLr0[p] + 1) << 32 | itemOrigin[p];
+				}
+				leoTops[y] = top;
+			}
+			return top;
+		}
+
+		/**
+		 * Index the items of set i by the nonterminal after their dot, and
+		 * build its transitive items.
+		 */
+		private void finishSet(int i) {
+			postStart[i] = noOfPostKeys;
+			for (int p = setStart[i]; p < noOfItems; p++) {
+				int X = postdot[itemLr0[p]];
+				if (X >= 0) {
+					if (noOfPostKeys == postKeys.length) {
+						postKeys = Arrays.copyOf(postKeys, 2 * noOfPostKeys);
+						leoTops = Arrays.copyOf(leoTops, 2 * noOfPostKeys);
+					}
+					postKeys[noOfPostKeys++] = (long) X << 32 | p;
+				}
+			}
+			Arrays.sort(postKeys, postStart[i], noOfPostKeys);
+			Arrays.fill(leoTops, postStart[i], noOfPostKeys, UNKNOWN);
+			postStart[i + 1] = noOfPostKeys;
+			// Build the transitive items of set i right away, so that each one
+			// only looks up the memoized items of earlier sets.
+			for (int y = postStart[i]; y < noOfPostKeys; y++) {
+				int B = (int) (postKeys[y] >>> 32);
+				boolean isUnique = (y == postStart[i]
+						|| (int) (postKeys[y - 1] >>> 32) != B)
+						&& (y + 1 == noOfPostKeys
+						|| (int) (postKeys[y + 1] >>> 32) != B);
+				if (isUnique) {
+					leoItem(i, B);
+				}
+			}
+		}
+
+		/**
+		 * Return the index of the first key of set j with a nonterminal
+		 * greater than or equal to B after the dot.
+		 */
+		private int lowerBound(int j, int B) {
+			long key = (long) B << 32;
+			int low = postStart[j];
+			int high = postStart[j + 1];
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (postKeys[mid] < key) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Add the item (lr0, origin) to the current set unless it is already
+		 * there.
+		 */
+		private void add(int lr0, int origin) {
+			if (2 * noOfSeen >= seen.length) {
+				rehash();
+			}
+			long key = (long) lr0 << 32 | origin;
+			int slot = find(key);
+			if (seenStamp[slot] == stamp) {
+				return;
+			}
+			seen[slot] = key;
+			seenStamp[slot] = stamp;
+			noOfSeen++;
+			if (noOfItems == itemLr0.length) {
+				itemLr0 = Arrays.copyOf(itemLr0, 2 * noOfItems);
+				itemOrigin = Arrays.copyOf(itemOrigin, 2 * noOfItems);
+			}
+			itemLr0[noOfItems] = lr0;
+			itemOrigin[noOfItems++] = origin;
+		}
+
+		/**
+		 * Check if the current set contains the item (lr0, origin).
+		 */
+		private boolean contains(int lr0, int origin) {
+			return seenStamp[find((long) lr0 << 32 | origin)] == stamp;
+		}
+
+		/**
+		 * Return the slot of key in seen, or the free slot where it belongs.
+		 */
+		private int find(long key) {
+			int mask = seen.length - 1;
+			int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+			while (seenStamp[slot] == stamp && seen[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/**
+		 * Double the size of seen and insert the items of the current set
+		 * again.
+		 */
+		private void rehash() {
+			seen = new long[2 * seen.length];
+			seenStamp = new int[seen.length];
+			stamp = 1;
+			for (int p = setStart[current]; p < noOfItems; p++) {
+				long key = (long) itemLr0[p] << 32 | itemOrigin[p];
+				int slot = find(key);
+				seen[slot] = key;
+				seenStamp[slot] = stamp;
+			}
+		}
+	}
+}
@@ -1,5 +1,7 @@
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 public class EmptinessCorrectnessTest {
@@ -83,4 +85,41 @@ public class EmptinessCorrectnessTest {
 		assertFalse(g.languageIsEmpty());
 	}
 
+	@Test
+	public void testLongChainWithDefaultStack() {
+		CFG g = new CFG();
+		int n = 100000;
+		g.addRule("S -> S0");
+		for (int k = 0; k < n; k++) {
+			g.addRule("S" + k + " -> S" + (k + 1));
+		}
+		assertTrue(g.languageIsEmpty());
+		g.addRule("S" + n + " -> a");
+		assertFalse(g.languageIsEmpty());
+		assertEquals(n + 2, g.removeUselessSymbols().noOfRules());
+	}
+
+	@Test
+	public void testInterleavedInsertionsAndQueries() {
+		Random random = new Random(1);
+		String[] names = {"S", "A", "B", "C", "D", "E"};
+		for (int n = 0; n < 50; n++) {
+			CFG g = new CFG();
+			for (int k = 0; k < 12; k++) {
+				StringBuilder body = new StringBuilder();
+				for (int i = random.nextInt(3); i >= 0; i--) {
+					body.append(random.nextInt(4) == 0 ? "a"
+							: names[random.nextInt(names.length)]);
+				}
+				g.addRule(names[random.nextInt(names.length)] + " -> " + body);
+				String useful = " " + g.removeUselessSymbols().toString();
+				assertEquals(g.freeze().languageIsEmpty(), g.languageIsEmpty());
+				for (String name : names) {
+					assertEquals(useful.contains(" " + name + " -> "),
+							g.isUseful(name));
+				}
+			}
+		}
+	}
+
 }
@@ -77,5 +77,26 @@ public class EmptinessEfficiencyTest {
 			System.out.print(", Average time: ");
 			System.out.println((totalTime / 1000000 / LOOP_COUNT) + " ms.");
 		}
+
+		System.out.println("\nTesting chain rules with a query after every rule:");
+		for (int i = 64000; i <= I_MAX; i *= 2) {
+			long totalTime = 0;
+			for (int j = 0; j < LOOP_COUNT; j++) {
+				g = new CFG();
+				long startTime = System.nanoTime();
+				int k = 0;
+				g.addRule("S -> S0");
+				for (; g.size() < i; k++) {
+					g.addRule("S" + k + " -> S" + (k + 1));
+					g.languageIsEmpty();
+				}
+				g.addRule("S" + k + " -> a");
+				g.languageIsEmpty();
+				totalTime += System.nanoTime() - startTime;
+			}
+			System.out.print("Size of the CFG: " + i);
+			System.out.print(", Average time: ");
+			System.out.println((totalTime / 1000000 / LOOP_COUNT) + " ms.");
+		}
 	}
 }
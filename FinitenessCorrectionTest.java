@@ -1,5 +1,7 @@
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 public class FinitenessCorrectionTest {
@@ -75,4 +77,72 @@ public class FinitenessCorrectionTest {
 		assertFalse(g.languageIsFinite());
 	}
 
+	@Test
+	public void testLongChainWithDefaultStack() {
+		CFG g = new CFG();
+		int n = 100000;
+		g.addRule("S -> aS0");
+		for (int k = 0; k < n; k++) {
+			g.addRule("S" + k + " -> aS" + (k + 1));
+			g.addRule("S" + k + " -> b");
+		}
+		g.addRule("S" + n + " -> a");
+		assertTrue(g.languageIsFinite());
+		g.addRule("S" + n + " -> S");
+		assertFalse(g.languageIsFinite());
+	}
+
+	@Test
+	public void testThatUnitCycleIsFinite() {
+		CFG g = new CFG();
+		g.addRule("S -> A");
+		g.addRule("A -> B");
+		g.addRule("B -> S");
+		g.addRule("B -> b");
+		assertTrue(g.languageIsFinite());
+	}
+
+	@Test
+	public void testThatCycleThroughNullableSymbolsIsFinite() {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("A -> SB");
+		g.addRule("A -> a");
+		g.addRule("B -> BB");
+		g.addRule("B -> epsilon");
+		assertTrue(g.languageIsFinite());
+		g.addRule("B -> b");
+		assertFalse(g.languageIsFinite());
+	}
+
+	@Test
+	public void testThatCycleThroughNonGeneratingBodyIsFinite() {
+		CFG g = new CFG();
+		g.addRule("S -> aSC");
+		g.addRule("S -> a");
+		g.addRule("C -> cC");
+		assertTrue(g.languageIsFinite());
+	}
+
+	@Test
+	public void testThatRandomGrammarsAgreeWithCNF() {
+		Random random = new Random(1);
+		String[] names = {"S", "A", "B", "C", "D"};
+		for (int n = 0; n < 500; n++) {
+			CFG g = new CFG();
+			for (int k = random.nextInt(8); k >= 0; k--) {
+				StringBuilder body = new StringBuilder();
+				for (int i = random.nextInt(3); i >= 0; i--) {
+					int c = random.nextInt(8);
+					body.append(c == 0 ? "a" : names[random.nextInt(names.length)]);
+				}
+				String rule = names[random.nextInt(names.length)] + " -> "
+						+ (random.nextInt(6) == 0 ? "epsilon" : body.toString());
+				g.addRule(rule);
+			}
+			assertEquals(g.toString(), !g.toCNF().isCyclicInit(0),
+					g.languageIsFinite());
+		}
+	}
+
 }
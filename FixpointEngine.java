@@ -0,0 +1,237 @@
+import java.util.Arrays;
+
+/**
+ * This class computes least fixpoints over the graph of a CFG, whose nodes
+ * are the nonterminals and the bodies, given in compressed sparse row form
+ * like in FrozenCFG. A fixpoint is described by a counter per node:
+ * 		A body fires once its counter reaches 0, i.e. once that many
+ * 		occurrences of nonterminals in it have fired.
+ * 		A nonterminal fires once its counter reaches 0, i.e. once that many
+ * 		of its bodies have fired.
+ * Nodes whose counter starts at 0 fire at once, and nodes with a negative
+ * counter never fire. The generating, nullable and nonempty nonterminals and
+ * the order in which unit rules can be removed are all fixpoints of this
+ * form.
+ *
+ * The reverse edges (the heads of every body and the bodies containing every
+ * nonterminal) are built once, in the same compressed form, and the work
+ * queues are int arrays, so a fixpoint takes time linear in the size of the
+ * CFG and no objects per node.
+ */
+final class FixpointEngine {
+	private final int noOfNts;
+	private final int noOfBodies;
+	private final int[] ruleStart;
+	private final int[] ruleBody;
+	private final int[] bodyStart;
+	private final int[] bodySymbols;
+	// The heads of the rules with body b are bodyHeads[headStart[b]..].
+	private final int[] headStart;
+	private final int[] bodyHeads;
+	// The bodies containing A are occurrences[occurrenceStart[A]..], once
+	// per occurrence.
+	private final int[] occurrenceStart;
+	private final int[] occurrences;
+
+	FixpointEngine(int noOfNts, int[] ruleStart, int[] ruleBody,
+			int[] bodyStart, int[] bodySymbols) {
+		this.noOfNts = noOfNts;
+		this.noOfBodies = bodyStart.length - 1;
+		this.ruleStart = ruleStart;
+		this.ruleBody = ruleBody;
+		this.bodyStart = bodyStart;
+		this.bodySymbols = bodySymbols;
+
+		headStart = new int[noOfBodies + 1];
+		for (int x = 0; x < ruleBody.length; x++) {
+			headStart[ruleBody[x] + 1]++;
+		}
+		for (int b = 0; b < noOfBodies; b++) {
+			headStart[b + 1] += headStart[b];
+		}
+		bodyHeads = new int[ruleBody.length];
+		int[] next = headStart.clone();
+		for (int ntID = 0; ntID < noOfNts; ntID++) {
+			for (int x = ruleStart[ntID]; x < ruleStart[ntID + 1]; x++) {
+				bodyHeads[next[ruleBody[x]]++] = ntID;
+			}
+		}
+
+		occurrenceStart = new int[noOfNts + 1];
+		for (int y = 0; y < bodySymbols.length; y++) {
+			if (bodySymbols[y] >= 0) {
+				occurrenceStart[bodySymbols[y] + 1]++;
+			}
+		}
+		for (int ntID = 0; ntID < noOfNts; ntID++) {
+			occurrenceStart[ntID + 1] += occurrenceStart[ntID];
+		}
+		occurrences = new int[occurrenceStart[noOfNts]];
+		next = occurrenceStart.clone();
+		for (int b = 0; b < noOfBodies; b++) {
+			for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+				if (bodySymbols[y] >= 0) {
+					occurrences[next[bodySymbols[y]]++] = b;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return which nonterminals are generating. A body is generating once
+	 * all of its nonterminals are, and a nonterminal once one of its bodies
+	 * is.
+	 */
+	boolean[] findGenerating() {
+		int[] bodyCount = new int[noOfBodies];
+		for (int b = 0; b < noOfBodies; b++) {
+			bodyCount[b] = occurrencesIn(b);
+		}
+		int[] ntCount = new int[noOfNts];
+		Arrays.fill(ntCount, 1);
+		run(bodyCount, ntCount, new int[noOfNts]);
+		return fired(ntCount);
+	}
+
+	/**
+	 * Return which nonterminals are nullable, i.e. derive epsilon. A body
+	 * is nullable once all of its symbols are nullable nonterminals (or it is
+	 * epsilon), and a nonterminal once one of its bodies is.
+	 */
+	boolean[] findNullable() {
+		int[] bodyCount = new int[noOfBodies];
+		for (int b = 0; b < noOfBodies; b++) {
+			bodyCount[b] = occurrencesIn(b);
+			for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+				if (bodySymbols[y] < -1) {
+					bodyCount[b] = -1;
+				}
+			}
+		}
+		int[] ntCount = new int[noOfNts];
+		Arrays.fill(ntCount, 1);
+		run(bodyCount, ntCount, new int[noOfNts]);
+		return fired(ntCount);
+	}
+
+	/**
+	 * Return which nonterminals derive a nonempty string of terminals, given
+	 * which are generating. A generating body is nonempty at once if it
+	 * contains a terminal, and otherwise once one of its nonterminals is, and
+	 * a nonterminal once one of its bodies is.
+	 */
+	boolean[] findNonempty(boolean[] isGenerating) {
+		int[] bodyCount = new int[noOfBodies];
+		for (int b = 0; b < noOfBodies; b++) {
+			bodyCount[b] = 1;
+			for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+				int symbolID = bodySymbols[y];
+				if (symbolID >= 0 && !isGenerating[symbolID]) {
+					bodyCount[b] = -1;
+					break;
+				}
+				if (symbolID < -1) {
+					bodyCount[b] = 0;
+				}
+			}
+		}
+		int[] ntCount = new int[noOfNts];
+		Arrays.fill(ntCount, 1);
+		run(bodyCount, ntCount, new int[noOfNts]);
+		return fired(ntCount);
+	}
+
+	/**
+	 * Return the nonterminals in an order where the body B of every unit rule
+	 * A -> B comes before A, i.e. where the rules of B can be copied to A
+	 * once B has got the rules of its own unit rules. Nonterminals on a cycle
+	 * of unit rules (or depending on one) are left out.
+	 */
+	int[] unitRuleOrder() {
+		int[] bodyCount = new int[noOfBodies];
+		for (int b = 0; b < noOfBodies; b++) {
+			bodyCount[b] = isUnitBody(b) ? 1 : -1;
+		}
+		int[] ntCount = new int[noOfNts];
+		for (int ntID = 0; ntID < noOfNts; ntID++) {
+			for (int x = ruleStart[ntID]; x < ruleStart[ntID + 1]; x++) {
+				if (isUnitBody(ruleBody[x])) {
+					ntCount[ntID]++;
+				}
+			}
+		}
+		int[] order = new int[noOfNts];
+		return Arrays.copyOf(order, run(bodyCount, ntCount, order));
+	}
+
+	/**
+	 * Run the fixpoint given by the counters, which are counted down to 0 as
+	 * the nodes fire. The nonterminals are put in order in the order they
+	 * fire, and their number is returned.
+	 */
+	int run(int[] bodyCount, int[] ntCount, int[] order) {
+		int[] bodyQueue = new int[noOfBodies];
+		int bodyHead = 0;
+		int bodyTail = 0;
+		for (int b = 0; b < noOfBodies; b++) {
+			if (bodyCount[b] == 0) {
+				bodyQueue[bodyTail++] = b;
+			}
+		}
+		int head = 0;
+		int tail = 0;
+		for (int ntID = 0; ntID < noOfNts; ntID++) {
+			if (ntCount[ntID] == 0) {
+				order[tail++] = ntID;
+			}
+		}
+		while (bodyHead < bodyTail || head < tail) {
+			if (bodyHead < bodyTail) {
+				int b = bodyQueue[bodyHead++];
+				for (int z = headStart[b]; z < headStart[b + 1]; z++) {
+					int ntID = bodyHeads[z];
+					if (ntCount[ntID] > 0 && --ntCount[ntID] == 0) {
+						order[tail++] = ntID;
+					}
+				}
+			} else {
+				int ntID = order[head++];
+				for (int y = occurrenceStart[ntID]; y < occurrenceStart[ntID + 1]; y++) {
+					int b = occurrences[y];
+					if (bodyCount[b] > 0 && --bodyCount[b] == 0) {
+						bodyQueue[bodyTail++] = b;
+					}
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Return the number of occurrences of nonterminals in the body b.
+	 */
+	private int occurrencesIn(int b) {
+		int count = 0;
+		for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+			if (bodySymbols[y] >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private boolean isUnitBody(int b) {
+		return bodyStart[b + 1] - bodyStart[b] == 1 && bodySymbols[bodyStart[b]] >= 0;
+	}
+
+	/**
+	 * Return which nonterminals have fired, i.e. have a counter of 0.
+	 */
+	private static boolean[] fired(int[] ntCount) {
+		boolean[] fired = new boolean[ntCount.length];
+		for (int ntID = 0; ntID < ntCount.length; ntID++) {
+			fired[ntID] = ntCount[ntID] == 0;
+		}
+		return fired;
+	}
+}
@@ -0,0 +1,605 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * This class is an immutable, compact form of a CFG, obtained from
+ * CFG.freeze(). The rules and bodies are packed into int arrays in compressed
+ * sparse row form:
+ * 		The rules of the nonterminal A are the body IDs
+ * 		ruleBody[ruleStart[A]..ruleStart[A+1]-1].
+ * 		The symbols of the body b are
+ * 		bodySymbols[bodyStart[b]..bodyStart[b+1]-1].
+ * The symbol IDs are the same as in the CFG it was frozen from, so a rule
+ * costs one int plus one int per symbol of its body, and no objects.
+ *
+ * The analyses of CFG can all be run on a FrozenCFG. The graph searches use
+ * explicit int stacks instead of recursion, and the reverse edges they need
+ * are built in the same compressed form.
+ */
+public final class FrozenCFG {
+	private final String[] nts;
+	private final int startSymbolID;
+	private final int noOfRules;
+	private final int size;
+	private final int[] ruleStart;
+	private final int[] ruleBody;
+	private final int[] bodyStart;
+	private final int[] bodySymbols;
+	private CYKTable cykTable;
+	private UnitClosure unitClosure;
+	private FixpointEngine fixpointEngine;
+
+	FrozenCFG(String[] nts, int startSymbolID, int[] ruleStart, int[] ruleBody,
+			int[] bodyStart, int[] bodySymbols) {
+		this.nts = nts;
+		this.startSymbolID = startSymbolID;
+		this.ruleStart = ruleStart;
+		this.ruleBody = ruleBody;
+		this.bodyStart = bodyStart;
+		this.bodySymbols = bodySymbols;
+		this.noOfRules = ruleBody.length;
+		int size = 0;
+		for (int x = 0; x < ruleBody.length; x++) {
+			size += 1 + bodyLength(ruleBody[x]);
+		}
+		this.size = size;
+	}
+
+	FrozenCFG(String[] nts, int startSymbolID, int[] ruleStart, int[] ruleBody,
+			int[] bodyStart, int[] bodySymbols, CYKTable cykTable) {
+		this(nts, startSymbolID, ruleStart, ruleBody, bodyStart, bodySymbols);
+		this.cykTable = cykTable;
+	}
+
+	/**
+	 * Write this CFG to the given file in the binary format of
+	 * GrammarSnapshot. If cykTable is true, the compiled CYK form of the rules
+	 * is written too, so a restored CFG in CNF can run derives() at once.
+	 */
+	public void save(Path path, boolean cykTable) throws IOException {
+		GrammarSnapshot.write(path, this, cykTable);
+	}
+
+	/**
+	 * Read back a CFG written with save(). The file is memory-mapped and
+	 * checked against its CRC32, and the arrays are then copied out of it, so
+	 * the file is not used after this returns.
+	 */
+	public static FrozenCFG load(Path path) throws IOException {
+		return GrammarSnapshot.read(path);
+	}
+
+	/**
+	 * Create and return a CFG with the rules of this CFG, which can be
+	 * changed again. The nonterminals keep their IDs, including those that
+	 * have no rules.
+	 */
+	public CFG thaw() {
+		CFG g = new CFG();
+		for (String name : nts) {
+			g.nonterminal(name);
+		}
+		for (int ntID = 0; ntID < nts.length; ntID++) {
+			for (int x = ruleStart[ntID]; x < ruleStart[ntID + 1]; x++) {
+				int b = ruleBody[x];
+				g.addRule(ntID, Arrays.copyOfRange(bodySymbols, bodyStart[b],
+						bodyStart[b + 1]));
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * Return the names of the nonterminals, indexed by ID.
+	 */
+	String[] nonterminals() {
+		return nts;
+	}
+
+	int startSymbolID() {
+		return startSymbolID;
+	}
+
+	/**
+	 * Return the arrays ruleStart, ruleBody, bodyStart and bodySymbols.
+	 */
+	int[][] arrays() {
+		return new int[][] { ruleStart, ruleBody, bodyStart, bodySymbols };
+	}
+
+	/**
+	 * Return the number of nonterminals in this CFG.
+	 */
+	public int noOfNonterminals() {
+		return nts.length;
+	}
+
+	/**
+	 * Return the number of rules in this CFG.
+	 */
+	public int noOfRules() {
+		return noOfRules;
+	}
+
+	/**
+	 * Return the size of this CFG.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the number of bytes taken by the arrays of this CFG, not
+	 * counting the names of the nonterminals.
+	 */
+	public long arrayBytes() {
+		return 4L * (ruleStart.length + ruleBody.length + bodyStart.length
+				+ bodySymbols.length) + 8L * nts.length;
+	}
+
+	/**
+	 * Use the CYK algorithm to check if word can be derived from this CFG,
+	 * like CFG.derives(). This CFG must be in CNF.
+	 */
+	public boolean derives(String word) {
+		if (word.isEmpty()) {
+			for (int x = ruleStart[startSymbolID]; x < ruleStart[startSymbolID + 1]; x++) {
+				if (bodySymbols[bodyStart[ruleBody[x]]] == -1) {
+					return true;
+				}
+			}
+			return false;
+		}
+		CYKTable t = cykTable();
+		CYKChart chart = new CYKChart(word.length(), t.w);
+		if (!t.setTerminalCells(word, chart)) {
+			return false;
+		}
+		for (int i = 1; i < word.length(); i++) {
+			t.fillCells(chart, i, 0, word.length() - i);
+		}
+		return t.derivesWord(chart);
+	}
+
+	/**
+	 * Return the compiled CYK form of the rules of this CFG. Only rules of
+	 * the form A -> a and A -> BC are compiled.
+	 */
+	CYKTable cykTable() {
+		if (cykTable != null) {
+			return cykTable;
+		}
+		int[] unitHead = new int[noOfRules];
+		int[] unitTerminal = new int[noOfRules];
+		int[] binaryHead = new int[noOfRules];
+		int[] binaryLeft = new int[noOfRules];
+		int[] binaryRight = new int[noOfRules];
+		int noOfUnitRules = 0;
+		int noOfBinaryRules = 0;
+		for (int ntID = 0; ntID < nts.length; ntID++) {
+			for (int x = ruleStart[ntID]; x < ruleStart[ntID + 1]; x++) {
+				int start = bodyStart[ruleBody[x]];
+				int length = bodyLength(ruleBody[x]);
+				if (length == 1 && bodySymbols[start] < -1) {
+					unitHead[noOfUnitRules] = ntID;
+					unitTerminal[noOfUnitRules++] = bodySymbols[start];
+				} else if (length == 2 && bodySymbols[start] >= 0
+						&& bodySymbols[start + 1] >= 0) {
+					binaryHead[noOfBinaryRules] = ntID;
+					binaryLeft[noOfBinaryRules] = bodySymbols[start];
+					binaryRight[noOfBinaryRules++] = bodySymbols[start + 1];
+				}
+			}
+		}
+		cykTable = new CYKTable(nts.length, startSymbolID, unitHead,
+				unitTerminal, noOfUnitRules, binaryHead, binaryLeft,
+				binaryRight, noOfBinaryRules);
+		return cykTable;
+	}
+
+	/**
+	 * Return the unit closure of the rules of this CFG, which the CYK
+	 * algorithm applies to every cell for a CFG in binary normal form.
+	 */
+	UnitClosure unitClosure() {
+		if (unitClosure == null) {
+			unitClosure = new UnitClosure(nts.length, startSymbolID, ruleStart,
+					ruleBody, bodyStart, bodySymbols,
+					fixpointEngine().findNullable());
+		}
+		return unitClosure;
+	}
+
+	/**
+	 * Create and return a new CFG which contains only the useful symbols and
+	 * rules.
+	 */
+	public CFG removeUselessSymbols() {
+		return removeNonGeneratingSymbols().freeze().removeUnreachableSymbols();
+	}
+
+	/**
+	 * Create and return a new CFG which contains only the generating symbols
+	 * and rules.
+	 */
+	public CFG removeNonGeneratingSymbols() {
+		return createNewCFGKeepingNonterminalsIn(findGeneratingSymbols());
+	}
+
+	/**
+	 * Check if the language generated by this CFG is empty.
+	 */
+	public boolean languageIsEmpty() {
+		return !findGeneratingSymbols()[startSymbolID];
+	}
+
+	/**
+	 * Check if the language generated by this CFG is finite. The language is
+	 * infinite iff some useful nonterminal A derives xAy, where xy is a
+	 * nonempty string of terminals. This is decided on the rules as they are:
+	 * 		The useful part of the graph is found by searching from the start
+	 * 		symbol through generating bodies only.
+	 * 		An edge A -> B for an occurrence of B in a body of A grows if the
+	 * 		body has another symbol deriving a nonempty string, i.e. a terminal
+	 * 		or a nonempty nonterminal, so cycles of unit rules and of nullable
+	 * 		nonterminals do not count.
+	 * 		The language is infinite iff a growing edge lies inside a strongly
+	 * 		connected component of the useful graph.
+	 * Every step takes time linear in the size of the CFG.
+	 */
+	public boolean languageIsFinite() {
+		boolean[] isGenerating = findGeneratingSymbols();
+		if (!isGenerating[startSymbolID]) {
+			return true;
+		}
+		boolean[] isNonempty = fixpointEngine().findNonempty(isGenerating);
+		boolean[] isGeneratingBody = new boolean[bodyStart.length - 1];
+		for (int b = 0; b < isGeneratingBody.length; b++) {
+			isGeneratingBody[b] = true;
+			for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+				if (bodySymbols[y] >= 0 && !isGenerating[bodySymbols[y]]) {
+					isGeneratingBody[b] = false;
+				}
+			}
+		}
+		int[] component = findUsefulComponents(isGeneratingBody);
+		for (int ntID = 0; ntID < nts.length; ntID++) {
+			if (component[ntID] == -1) {
+				continue;
+			}
+			for (int x = ruleStart[ntID]; x < ruleStart[ntID + 1]; x++) {
+				int b = ruleBody[x];
+				if (!isGeneratingBody[b]) {
+					continue;
+				}
+				int nonempty = 0;
+				for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+					int symbolID = bodySymbols[y];
+					if (symbolID < -1 || symbolID >= 0 && isNonempty[symbolID]) {
+						nonempty++;
+					}
+				}
+				for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+					int ntID2 = bodySymbols[y];
+					if (ntID2 >= 0 && component[ntID2] == component[ntID]
+							&& nonempty > (isNonempty[ntID2] ? 1 : 0)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Find the strongly connected components of the nonterminals reachable
+	 * from the start symbol through generating bodies, where A -> B for every
+	 * occurrence of B in a generating body of A. This is Tarjan's algorithm
+	 * with explicit stacks, holding for each nonterminal being searched the
+	 * rule and the body symbol of the next edge to follow. Return the mapping
+	 * component, where component[ntID] is the root nonterminal of the
+	 * component of ntID, or -1 if ntID was not reached.
+	 */
+	private int[] findUsefulComponents(boolean[] isGeneratingBody) {
+		final int r = nts.length;
+		int[] component = new int[r];
+		int[] indexes = new int[r];
+		int[] lowLink = new int[r];
+		int[] stack = new int[r];
+		int stackTop = 0;
+		int[] callStack = new int[r];
+		int[] nextRule = new int[r];
+		int[] nextSymbol = new int[r];
+		int callTop = 0;
+		int index = 0;
+		Arrays.fill(component, -1);
+		Arrays.fill(indexes, -1);
+		indexes[startSymbolID] = lowLink[startSymbolID] = index++;
+		stack[stackTop++] = startSymbolID;
+		callStack[callTop] = startSymbolID;
+		nextRule[callTop] = ruleStart[startSymbolID];
+		nextSymbol[callTop++] = firstSymbol(ruleStart[startSymbolID], startSymbolID);
+		while (callTop > 0) {
+			int ntID = callStack[callTop - 1];
+			int x = nextRule[callTop - 1];
+			int y = nextSymbol[callTop - 1];
+			int ntID2 = -1;
+			while (x < ruleStart[ntID + 1] && ntID2 == -1) {
+				if (!isGeneratingBody[ruleBody[x]] || y == bodyStart[ruleBody[x] + 1]) {
+					y = firstSymbol(++x, ntID);
+					continue;
+				}
+				int symbolID = bodySymbols[y++];
+				if (symbolID < 0) {
+					continue;
+				}
+				if (indexes[symbolID] == -1) {
+					ntID2 = symbolID;
+				} else if (component[symbolID] == -1) {
+					// symbolID is still on the stack.
+					lowLink[ntID] = Math.min(lowLink[ntID], indexes[symbolID]);
+				}
+			}
+			nextRule[callTop - 1] = x;
+			nextSymbol[callTop - 1] = y;
+			if (ntID2 != -1) {
+				indexes[ntID2] = lowLink[ntID2] = index++;
+				stack[stackTop++] = ntID2;
+				callStack[callTop] = ntID2;
+				nextRule[callTop] = ruleStart[ntID2];
+				nextSymbol[callTop++] = firstSymbol(ruleStart[ntID2], ntID2);
+				continue;
+			}
+			if (lowLink[ntID] == indexes[ntID]) {
+				int ntID3;
+				do {
+					ntID3 = stack[--stackTop];
+					component[ntID3] = ntID;
+				} while (ntID3 != ntID);
+			}
+			callTop--;
+			if (callTop > 0) {
+				int parent = callStack[callTop - 1];
+				lowLink[parent] = Math.min(lowLink[parent], lowLink[ntID]);
+			}
+		}
+		return component;
+	}
+
+	/**
+	 * Return which nonterminals are generating. A body is generating once
+	 * all of its nonterminals are, and a nonterminal once one of its bodies
+	 * is.
+	 */
+	public boolean[] findGeneratingSymbols() {
+		return fixpointEngine().findGenerating();
+	}
+
+	/**
+	 * Return the FixpointEngine over the rules of this CFG, building its
+	 * reverse edges the first time.
+	 */
+	FixpointEngine fixpointEngine() {
+		if (fixpointEngine == null) {
+			fixpointEngine = new FixpointEngine(nts.length, ruleStart, ruleBody,
+					bodyStart, bodySymbols);
+		}
+		return fixpointEngine;
+	}
+
+	/**
+	 * Create and return a new CFG with only the symbols and rules reachable
+	 * from the start symbol.
+	 */
+	public CFG removeUnreachableSymbols() {
+		return createNewCFGKeepingNonterminalsIn(findReachableSymbols());
+	}
+
+	/**
+	 * Return which nonterminals are reachable from the start symbol.
+	 */
+	public boolean[] findReachableSymbols() {
+		boolean[] isReachable = new boolean[nts.length];
+		int[] stack = new int[nts.length];
+		int top = 0;
+		isReachable[startSymbolID] = true;
+		stack[top++] = startSymbolID;
+		while (top > 0) {
+			int ntID = stack[--top];
+			for (int x = ruleStart[ntID]; x < ruleStart[ntID + 1]; x++) {
+				int b = ruleBody[x];
+				for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+					int ntID2 = bodySymbols[y];
+					if (ntID2 >= 0 && !isReachable[ntID2]) {
+						isReachable[ntID2] = true;
+						stack[top++] = ntID2;
+					}
+				}
+			}
+		}
+		return isReachable;
+	}
+
+	/**
+	 * Search for cycles in the CFG graph reachable from ntID. Return true iff
+	 * there is a cycle. This is a depth-first search with an explicit stack,
+	 * holding for each nonterminal on it the rule and the body symbol of the
+	 * next edge to follow.
+	 */
+	public boolean isCyclic(int ntID) {
+		// 0 = not visited, 1 = on the stack, 2 = done.
+		byte[] state = new byte[nts.length];
+		int[] stack = new int[nts.length];
+		int[] rule = new int[nts.length];
+		int[] symbol = new int[nts.length];
+		int top = 0;
+		state[ntID] = 1;
+		stack[top] = ntID;
+		rule[top] = ruleStart[ntID];
+		symbol[top++] = firstSymbol(ruleStart[ntID], ntID);
+		while (top > 0) {
+			int a = stack[top - 1];
+			int x = rule[top - 1];
+			int y = symbol[top - 1];
+			while (x < ruleStart[a + 1] && y == bodyStart[ruleBody[x] + 1]) {
+				y = firstSymbol(++x, a);
+			}
+			if (x == ruleStart[a + 1]) {
+				state[a] = 2;
+				top--;
+				continue;
+			}
+			rule[top - 1] = x;
+			symbol[top - 1] = y + 1;
+			int ntID2 = bodySymbols[y];
+			if (ntID2 < 0) {
+				continue;
+			}
+			if (state[ntID2] == 1) {
+				return true;
+			}
+			if (state[ntID2] == 0) {
+				state[ntID2] = 1;
+				stack[top] = ntID2;
+				rule[top] = ruleStart[ntID2];
+				symbol[top++] = firstSymbol(ruleStart[ntID2], ntID2);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the position in bodySymbols of the first symbol of the rule x of
+	 * the nonterminal a, or 0 if a has no rule x.
+	 */
+	private int firstSymbol(int x, int a) {
+		return x < ruleStart[a + 1] ? bodyStart[ruleBody[x]] : 0;
+	}
+
+	/**
+	 * Find the strongly connected components of the graph of unit rules
+	 * A -> B, using Tarjan's algorithm with an explicit stack. Return the
+	 * mapping scc, where scc[ntID] is the root nonterminal of the strongly
+	 * connected component ntID is inside, like CFG.findSCCInit().
+	 */
+	public int[] findSCC() {
+		final int r = nts.length;
+		int[] scc = new int[r];
+		int[] indexes = new int[r];
+		int[] lowLink = new int[r];
+		boolean[] isStacked = new boolean[r];
+		int[] stack = new int[r];
+		int stackTop = 0;
+		int[] callStack = new int[r];
+		int[] nextRule = new int[r];
+		int callTop = 0;
+		int index = 0;
+		Arrays.fill(indexes, -1);
+		for (int root = 0; root < r; root++) {
+			if (indexes[root] != -1) {
+				continue;
+			}
+			indexes[root] = lowLink[root] = index++;
+			stack[stackTop++] = root;
+			isStacked[root] = true;
+			callStack[callTop] = root;
+			nextRule[callTop++] = ruleStart[root];
+			while (callTop > 0) {
+				int ntID = callStack[callTop - 1];
+				int x = nextRule[callTop - 1];
+				int ntID2 = -1;
+				for (; x < ruleStart[ntID + 1] && ntID2 == -1; x++) {
+					int b = ruleBody[x];
+					if (bodyStart[b + 1] - bodyStart[b] == 1
+							&& bodySymbols[bodyStart[b]] >= 0) {
+						ntID2 = bodySymbols[bodyStart[b]];
+						if (indexes[ntID2] != -1) {
+							if (isStacked[ntID2]) {
+								lowLink[ntID] = Math.min(lowLink[ntID], indexes[ntID2]);
+							}
+							ntID2 = -1;
+						}
+					}
+				}
+				nextRule[callTop - 1] = x;
+				if (ntID2 != -1) {
+					indexes[ntID2] = lowLink[ntID2] = index++;
+					stack[stackTop++] = ntID2;
+					isStacked[ntID2] = true;
+					callStack[callTop] = ntID2;
+					nextRule[callTop++] = ruleStart[ntID2];
+					continue;
+				}
+				if (lowLink[ntID] == indexes[ntID]) {
+					int ntID3;
+					do {
+						ntID3 = stack[--stackTop];
+						isStacked[ntID3] = false;
+						scc[ntID3] = ntID;
+					} while (ntID3 != ntID);
+				}
+				callTop--;
+				if (callTop > 0) {
+					int parent = callStack[callTop - 1];
+					lowLink[parent] = Math.min(lowLink[parent], lowLink[ntID]);
+				}
+			}
+		}
+		return scc;
+	}
+
+	/**
+	 * Create and return a new CFG with only the rules of this CFG that consist
+	 * solely of nonterminals with IDs equal to the indexes of all true elements
+	 * in ntsToKeep.
+	 */
+	private CFG createNewCFGKeepingNonterminalsIn(boolean[] ntsToKeep) {
+		CFG g = new CFG();
+		// map[A] is the ID of A in g, or -1 if A has not been added to g.
+		int[] map = new int[nts.length];
+		Arrays.fill(map, -1);
+		for (int ntID = 0; ntID < nts.length; ntID++) {
+			if (!ntsToKeep[ntID]) {
+				continue;
+			}
+			for (int x = ruleStart[ntID]; x < ruleStart[ntID + 1]; x++) {
+				int b = ruleBody[x];
+				boolean addRule = true;
+				for (int y = bodyStart[b]; y < bodyStart[b + 1] && addRule; y++) {
+					addRule = bodySymbols[y] < 0 || ntsToKeep[bodySymbols[y]];
+				}
+				if (!addRule) {
+					continue;
+				}
+				int lhsID = mapNonterminal(g, map, ntID);
+				int[] body = new int[bodyLength(b)];
+				for (int i = 0; i < body.length; i++) {
+					int symbolID = bodySymbols[bodyStart[b] + i];
+					body[i] = symbolID >= 0 ? mapNonterminal(g, map, symbolID)
+							: symbolID;
+				}
+				g.addRule(lhsID, body);
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * Return the ID in g of the nonterminal with the given ID, adding it to g
+	 * under the same name the first time.
+	 */
+	private int mapNonterminal(CFG g, int[] map, int ntID) {
+		if (map[ntID] == -1) {
+			map[ntID] = g.nonterminal(nts[ntID]);
+		}
+		return map[ntID];
+	}
+
+	/**
+	 * Return the number of symbols of the body b.
+	 */
+	private int bodyLength(int b) {
+		return bodyStart[b + 1] - bodyStart[b];
+	}
+}
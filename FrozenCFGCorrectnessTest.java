@@ -0,0 +1,219 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+public class FrozenCFGCorrectnessTest {
+
+	@Test
+	public void testThatEmptyGrammarDoesNotCrash() {
+		FrozenCFG f = new CFG().freeze();
+		assertTrue(f.languageIsEmpty());
+		assertEquals(0, f.removeUselessSymbols().noOfRules());
+		assertFalse(f.isCyclic(0));
+		assertFalse(f.derives("a"));
+	}
+
+	@Test
+	public void testSizes() {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("A -> aAb");
+		g.addRule("B -> epsilon");
+		FrozenCFG f = g.freeze();
+		assertEquals(g.noOfRules(), f.noOfRules());
+		assertEquals(g.size(), f.size());
+		assertEquals(3, f.noOfNonterminals());
+	}
+
+	@Test
+	public void uselessSymbolsShouldAgreeWithCFG() {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("S -> CD");
+		g.addRule("S -> a");
+		g.addRule("A -> aA");
+		g.addRule("A -> b");
+		g.addRule("B -> BC");
+		g.addRule("C -> c");
+		g.addRule("D -> d");
+		g.addRule("E -> eS");
+		FrozenCFG f = g.freeze();
+		assertEquals(g.removeNonGeneratingSymbols().toString(),
+				f.removeNonGeneratingSymbols().toString());
+		assertEquals(g.removeUnreachableSymbols().toString(),
+				f.removeUnreachableSymbols().toString());
+		assertEquals(g.removeUselessSymbols().toString(),
+				f.removeUselessSymbols().toString());
+		assertFalse(f.languageIsEmpty());
+		assertTrue(f.removeUselessSymbols().containsRule("S -> CD"));
+		assertFalse(f.removeUselessSymbols().containsRule("S -> AB"));
+	}
+
+	@Test
+	public void testEmptyLanguage() {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("A -> a");
+		g.addRule("B -> bB");
+		assertTrue(g.freeze().languageIsEmpty());
+		g.addRule("B -> b");
+		assertFalse(g.freeze().languageIsEmpty());
+	}
+
+	@Test
+	public void testCycles() {
+		CFG g = new CFG();
+		g.addRule("S -> aA");
+		g.addRule("A -> BbC");
+		g.addRule("B -> c");
+		g.addRule("C -> D");
+		g.addRule("D -> Ed");
+		g.addRule("E -> e");
+		g.addRule("F -> G");
+		g.addRule("G -> F");
+		FrozenCFG f = g.freeze();
+		assertFalse(f.isCyclic(0));
+		g.addRule("E -> Ab");
+		assertFalse(f.isCyclic(0));
+		assertTrue(g.freeze().isCyclic(0));
+		// F and G form a cycle, but it is not reachable from S.
+		assertTrue(f.isCyclic(6));
+	}
+
+	@Test
+	public void testUnitRuleComponents() {
+		CFG g = new CFG();
+		g.addRule("S -> A");
+		g.addRule("A -> B");
+		g.addRule("B -> C");
+		g.addRule("C -> A");
+		g.addRule("C -> D");
+		g.addRule("D -> DD");
+		g.addRule("D -> d");
+		int[] scc = g.freeze().findSCC();
+		assertEquals(scc[1], scc[2]);
+		assertEquals(scc[1], scc[3]);
+		assertTrue(scc[0] != scc[1]);
+		assertTrue(scc[1] != scc[4]);
+		assertEquals(4, scc[4]);
+	}
+
+	@Test
+	public void derivesShouldAgreeWithCFG() {
+		CFG g = new CFG();
+		g.addRule("S -> SS");
+		g.addRule("S -> LS1");
+		g.addRule("S -> AA1");
+		g.addRule("S -> a");
+		g.addRule("S1 -> SR");
+		g.addRule("L -> (");
+		g.addRule("R -> )");
+		g.addRule("A -> a");
+		g.addRule("A1 -> AA1");
+		g.addRule("A1 -> a");
+		FrozenCFG f = g.freeze();
+		String[] words = {"", "a", "(a)", "(aaa)", "(((aaa)))", "(a)(a)(a)",
+				"((a)(a))", "(", ")", "(((a))", ")a(", "(a)(a)("};
+		for (String word : words) {
+			assertEquals(g.derives(word), f.derives(word));
+		}
+	}
+
+	@Test
+	public void snapshotShouldRestoreTheSameCFG() throws IOException {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("S -> a");
+		g.addRule("A -> a");
+		g.addRule("B -> BA1");
+		g.addRule("B -> b");
+		g.addRule("A1 -> a");
+		g.addRule("C -> c");
+		FrozenCFG f = g.freeze();
+		Path file = Files.createTempFile("cfg", ".bin");
+		try {
+			for (boolean cykTable : new boolean[] {false, true}) {
+				f.save(file, cykTable);
+				FrozenCFG f2 = FrozenCFG.load(file);
+				assertEquals(f.noOfNonterminals(), f2.noOfNonterminals());
+				assertEquals(f.noOfRules(), f2.noOfRules());
+				assertEquals(f.size(), f2.size());
+				assertEquals(f.removeNonGeneratingSymbols().toString(),
+						f2.removeNonGeneratingSymbols().toString());
+				String[] words = {"", "a", "ab", "aba", "abaa", "b", "ba", "c"};
+				for (String word : words) {
+					assertEquals(f.derives(word), f2.derives(word));
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void thawedSnapshotShouldBeEditable() throws IOException {
+		CFG g = new CFG();
+		g.addRule("S -> aSb");
+		g.addRule("S -> epsilon");
+		g.addRule("A -> a");
+		g.removeRule("A -> a");
+		g.addRule("B -> b");
+		Path file = Files.createTempFile("cfg", ".bin");
+		try {
+			g.freeze().save(file, false);
+			CFG h = FrozenCFG.load(file).thaw();
+			assertEquals(g.noOfRules(), h.noOfRules());
+			assertEquals(g.size(), h.size());
+			assertTrue(h.containsRule("S -> aSb"));
+			assertTrue(h.containsRule("S -> epsilon"));
+			assertFalse(h.containsRule("A -> a"));
+			assertEquals(g.nonterminal("B"), h.nonterminal("B"));
+			assertTrue(h.derives("aabb", CFG.Algorithm.EARLEY));
+			h.removeRule("S -> epsilon");
+			h.addRule("S -> ab");
+			assertTrue(h.derives("aabb", CFG.Algorithm.EARLEY));
+			assertFalse(h.derives("", CFG.Algorithm.EARLEY));
+			assertTrue(g.derives("", CFG.Algorithm.EARLEY));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void corruptSnapshotShouldBeRejected() throws IOException {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("A -> a");
+		g.addRule("B -> b");
+		Path file = Files.createTempFile("cfg", ".bin");
+		try {
+			g.freeze().save(file, true);
+			try (FileChannel channel = FileChannel.open(file,
+					StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.wrap(new byte[] {42}), channel.size() - 1);
+			}
+			FrozenCFG.load(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void textFileShouldNotLoadAsSnapshot() throws IOException {
+		Path file = Files.createTempFile("cfg", ".txt");
+		try {
+			Files.write(file, "S -> a\n".getBytes());
+			FrozenCFG.load(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+public class FrozenCFGEfficiencyTest {
+
+	public static void main(String[] args) {
+		final int I_MAX = 30000000;
+		System.out.println("Memory test for frozen CFGs:");
+
+		// Test with randomly built rules.
+		for (int i = 64000; i < I_MAX; i *= 2) {
+			long before = usedMemory();
+			CFG g = RandomCFGGenerator.createRandomCFG(i);
+			long cfgBytes = usedMemory() - before;
+			long startTime = System.nanoTime();
+			FrozenCFG f = g.freeze();
+			long freezeTime = System.nanoTime() - startTime;
+			startTime = System.nanoTime();
+			g.removeNonGeneratingSymbols();
+			long cfgTime = System.nanoTime() - startTime;
+			g = null;
+			long frozenBytes = usedMemory() - before;
+			startTime = System.nanoTime();
+			f.removeNonGeneratingSymbols();
+			long frozenTime = System.nanoTime() - startTime;
+			System.out.println("Size of the CFG: " + f.size()
+					+ ", CFG: " + (cfgBytes >> 20) + " MB"
+					+ ", FrozenCFG: " + (frozenBytes >> 20) + " MB"
+					+ " (arrays: " + (f.arrayBytes() >> 20) + " MB)"
+					+ ", Freeze time: " + (freezeTime / 1000000) + " ms");
+			System.out.println("    removeNonGeneratingSymbols() time, CFG: "
+					+ (cfgTime / 1000000) + " ms, FrozenCFG: "
+					+ (frozenTime / 1000000) + " ms");
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Return the number of bytes used on the heap after garbage collection.
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * This class writes a FrozenCFG to a binary file and reads it back. The file
+ * is a header followed by a payload:
+ * 		The header is the magic number, the format version, the flags, the
+ * 		length of the payload and the CRC32 of the payload.
+ * 		The payload is the start symbol, the names of the nonterminals, the
+ * 		arrays ruleStart, ruleBody, bodyStart and bodySymbols and, if the
+ * 		CYK_TABLE flag is set, the arrays of the compiled CYKTable.
+ * Every array is stored as its length followed by its elements, in little
+ * endian order. This is a copy-on-load format: reading maps the file only to
+ * check it and bulk copy each array out of the mapping into the heap, so a
+ * restored grammar takes as much memory as one built with CFG.freeze(), and
+ * loading costs about as much as reading the file.
+ */
+final class GrammarSnapshot {
+	static final int MAGIC = 0x43464753; // "CFGS"
+	static final int VERSION = 1;
+	static final int CYK_TABLE = 1;
+	// magic, version, flags, payload length (long), CRC32 (long).
+	static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8;
+
+	private GrammarSnapshot() {
+	}
+
+	/**
+	 * Write f to the given file, with its CYKTable if cyk is true.
+	 */
+	static void write(Path path, FrozenCFG f, boolean cyk) throws IOException {
+		String[] nts = f.nonterminals();
+		int[][] grammar = f.arrays();
+		CYKTable t = cyk ? f.cykTable() : null;
+		int[] nameStart = nameStart(nts);
+
+		long size = HEADER_BYTES + 4 + arrayBytes(nameStart)
+				+ 4 + 2L * nameStart[nts.length];
+		for (int[] a : grammar) {
+			size += arrayBytes(a);
+		}
+		if (t != null) {
+			size += 4 + 4;
+			for (long[] bits : t.terminalNts) {
+				if (bits != null) {
+					size += 4 + 8L * t.w;
+				}
+			}
+			for (int[] a : cykIntArrays(t)) {
+				size += arrayBytes(a);
+			}
+			for (long[] a : cykLongArrays(t)) {
+				size += arrayBytes(a);
+			}
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("The grammar is too large for a snapshot: "
+					+ size + " bytes");
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			buf.position(HEADER_BYTES);
+			buf.putInt(f.startSymbolID());
+			putArray(buf, nameStart);
+			buf.putInt(nameStart[nts.length]);
+			for (String name : nts) {
+				for (int i = 0; i < name.length(); i++) {
+					buf.putChar(name.charAt(i));
+				}
+			}
+			for (int[] a : grammar) {
+				putArray(buf, a);
+			}
+			if (t != null) {
+				buf.putInt(t.terminalNts.length);
+				int count = 0;
+				for (long[] bits : t.terminalNts) {
+					count += bits == null ? 0 : 1;
+				}
+				buf.putInt(count);
+				for (int c = 0; c < t.terminalNts.length; c++) {
+					if (t.terminalNts[c] != null) {
+						buf.putInt(c);
+						buf.asLongBuffer().put(t.terminalNts[c]);
+						buf.position(buf.position() + 8 * t.w);
+					}
+				}
+				for (int[] a : cykIntArrays(t)) {
+					putArray(buf, a);
+				}
+				for (long[] a : cykLongArrays(t)) {
+					putArray(buf, a);
+				}
+			}
+
+			buf.position(HEADER_BYTES);
+			CRC32 crc = new CRC32();
+			crc.update(buf);
+			buf.putInt(0, MAGIC);
+			buf.putInt(4, VERSION);
+			buf.putInt(8, t != null ? CYK_TABLE : 0);
+			buf.putLong(12, size - HEADER_BYTES);
+			buf.putLong(20, crc.getValue());
+			buf.force();
+		}
+	}
+
+	/**
+	 * Read the FrozenCFG stored in the given file. Throw an IOException if
+	 * the file is not a snapshot of this version or is corrupt.
+	 */
+	static FrozenCFG read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES) {
+				throw new IOException("Not a grammar snapshot: " + path);
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("The snapshot is too large: " + size + " bytes");
+			}
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			if (buf.getInt(0) != MAGIC) {
+				throw new IOException("Not a grammar snapshot: " + path);
+			}
+			if (buf.getInt(4) != VERSION) {
+				throw new IOException("Unsupported snapshot version "
+						+ buf.getInt(4) + ", expected " + VERSION);
+			}
+			int flags = buf.getInt(8);
+			if (buf.getLong(12) != size - HEADER_BYTES) {
+				throw new IOException("The snapshot is truncated: " + path);
+			}
+			buf.position(HEADER_BYTES);
+			CRC32 crc = new CRC32();
+			crc.update(buf);
+			if (crc.getValue() != buf.getLong(20)) {
+				throw new IOException("The snapshot is corrupt: " + path);
+			}
+
+			try {
+				buf.position(HEADER_BYTES);
+				int startSymbolID = buf.getInt();
+				int[] nameStart = getIntArray(buf);
+				char[] chars = new char[buf.getInt()];
+				buf.asCharBuffer().get(chars);
+				buf.position(buf.position() + 2 * chars.length);
+				String[] nts = new String[nameStart.length - 1];
+				for (int i = 0; i < nts.length; i++) {
+					nts[i] = new String(chars, nameStart[i],
+							nameStart[i + 1] - nameStart[i]);
+				}
+				int[] ruleStart = getIntArray(buf);
+				int[] ruleBody = getIntArray(buf);
+				int[] bodyStart = getIntArray(buf);
+				int[] bodySymbols = getIntArray(buf);
+				CYKTable t = null;
+				if ((flags & CYK_TABLE) != 0) {
+					int w = (nts.length + 63) >>> 6;
+					long[][] terminalNts = new long[buf.getInt()][];
+					for (int count = buf.getInt(); count > 0; count--) {
+						long[] bits = new long[w];
+						terminalNts[buf.getInt()] = bits;
+						buf.asLongBuffer().get(bits);
+						buf.position(buf.position() + 8 * w);
+					}
+					int[] pairStart = getIntArray(buf);
+					int[] pairRight = getIntArray(buf);
+					int[] pairLeft = getIntArray(buf);
+					int[] rightStart = getIntArray(buf);
+					int[] pairsByRight = getIntArray(buf);
+					long[] pairHeads = getLongArray(buf);
+					long[] rightMask = getLongArray(buf);
+					long[] binaryHeads = getLongArray(buf);
+					t = new CYKTable(nts.length, startSymbolID, terminalNts,
+							pairStart, pairRight, pairHeads, rightMask, binaryHeads,
+							pairLeft, rightStart, pairsByRight);
+				}
+				return new FrozenCFG(nts, startSymbolID, ruleStart, ruleBody,
+						bodyStart, bodySymbols, t);
+			} catch (RuntimeException e) {
+				throw new IOException("The snapshot is corrupt: " + path, e);
+			}
+		}
+	}
+
+	/**
+	 * Return the arrays of t holding ints, in the order they are stored.
+	 */
+	private static int[][] cykIntArrays(CYKTable t) {
+		return new int[][] { t.pairStart, t.pairRight, t.pairLeft, t.rightStart,
+				t.pairsByRight };
+	}
+
+	/**
+	 * Return the arrays of t holding longs, in the order they are stored.
+	 */
+	private static long[][] cykLongArrays(CYKTable t) {
+		return new long[][] { t.pairHeads, t.rightMask, t.binaryHeads };
+	}
+
+	/**
+	 * Return the offsets of the names in the concatenation of all names.
+	 */
+	private static int[] nameStart(String[] nts) {
+		int[] nameStart = new int[nts.length + 1];
+		for (int i = 0; i < nts.length; i++) {
+			nameStart[i + 1] = nameStart[i] + nts[i].length();
+		}
+		return nameStart;
+	}
+
+	private static long arrayBytes(int[] a) {
+		return 4 + 4L * a.length;
+	}
+
+	private static long arrayBytes(long[] a) {
+		return 4 + 8L * a.length;
+	}
+
+	private static void putArray(ByteBuffer buf, int[] a) {
+		buf.putInt(a.length);
+		buf.asIntBuffer().put(a);
+		buf.position(buf.position() + 4 * a.length);
+	}
+
+	private static void putArray(ByteBuffer buf, long[] a) {
+		buf.putInt(a.length);
+		buf.asLongBuffer().put(a);
+		buf.position(buf.position() + 8 * a.length);
+	}
+
+	private static int[] getIntArray(ByteBuffer buf) {
+		int[] a = new int[buf.getInt()];
+		buf.asIntBuffer().get(a);
+		buf.position(buf.position() + 4 * a.length);
+		return a;
+	}
+
+	private static long[] getLongArray(ByteBuffer buf) {
+		long[] a = new long[buf.getInt()];
+		buf.asLongBuffer().get(a);
+		buf.position(buf.position() + 8 * a.length);
+		return a;
+	}
+}
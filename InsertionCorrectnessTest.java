@@ -1,5 +1,12 @@
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Test;
 
 public class InsertionCorrectnessTest {
@@ -30,4 +37,114 @@ public class InsertionCorrectnessTest {
 		assertFalse(g.containsRule("A -> b"));
 	}
 
+	@Test
+	public void testManyBodies() {
+		CFG g = new CFG();
+		for (int round = 0; round < 2; round++) {
+			for (int i = 0; i < 1000; i++) {
+				g.addRule("S -> a" + "AB".charAt(i % 2) + i + "b");
+				g.addRule("A" + i + " -> " + Integer.toBinaryString(i)
+						.replace('0', 'x').replace('1', 'y'));
+			}
+			assertEquals(2000, g.noOfRules());
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(g.containsRule("S -> a" + "AB".charAt(i % 2) + i + "b"));
+			assertFalse(g.containsRule("S -> a" + "AB".charAt(i % 2) + i + "c"));
+			assertTrue(g.containsRule("A" + i + " -> " + Integer.toBinaryString(i)
+					.replace('0', 'x').replace('1', 'y')));
+		}
+		assertFalse(g.containsRule("S -> epsilon"));
+		g.addRule("S -> epsilon");
+		assertTrue(g.containsRule("S -> epsilon"));
+	}
+
+	@Test
+	public void testSpacing() {
+		CFG g = new CFG();
+		g.addRule("S->AB12");
+		g.addRule("  A1  ->  aB1c ");
+		assertTrue(g.containsRule("S -> AB12"));
+		assertTrue(g.containsRule("A1 -> aB1c"));
+		assertFalse(g.containsRule("A -> aB1c"));
+		assertTrue(g.size() == 7);
+	}
+
+	@Test
+	public void testSymbolIDs() {
+		CFG g = new CFG();
+		int S = g.nonterminal("S");
+		int A = g.nonterminal("A1");
+		int a = CFG.terminal('a');
+		g.addRule(S, new int[]{a, A, a});
+		g.addRule(A, new int[]{CFG.EPSILON});
+		g.addRule(A, new int[]{a, A, a});
+		g.addRule(S, new int[]{a, A, a});
+		assertTrue(g.containsRule("S -> aA1a"));
+		assertTrue(g.containsRule("A1 -> epsilon"));
+		assertTrue(g.containsRule(A, new int[]{a, A, a}));
+		assertFalse(g.containsRule(S, new int[]{A}));
+		assertEquals(3, g.noOfRules());
+		assertEquals(10, g.size());
+		g.addRule("S -> A1");
+		assertTrue(g.containsRule(S, new int[]{A}));
+		assertEquals(A, g.nonterminal("A1"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownSymbolID() {
+		CFG g = new CFG();
+		g.addRule(0, new int[]{1});
+	}
+
+	@Test
+	public void testThatContainsRuleDoesNotAddNonterminals() {
+		CFG g = new CFG();
+		g.addRule("S -> a");
+		assertFalse(g.containsRule("S -> B"));
+		assertFalse(g.containsRule("B -> a"));
+		g.addRule("S -> C");
+		assertEquals(1, g.nonterminal("C"));
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+		Path file = Files.createTempFile("cfg", ".txt");
+		try {
+			Files.write(file, "S -> aSb\r\n\nS->epsilon\n  A12 -> B1cA12 \nB1 -> d"
+					.getBytes(StandardCharsets.ISO_8859_1));
+			CFG g = CFG.load(file);
+			assertEquals(4, g.noOfRules());
+			assertTrue(g.containsRule("S -> aSb"));
+			assertTrue(g.containsRule("S -> epsilon"));
+			assertTrue(g.containsRule("A12 -> B1cA12"));
+			assertTrue(g.containsRule("B1 -> d"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		CFG g = RandomCFGGenerator.createRandomCFG(10000);
+		g.addRule("S -> epsilon");
+		Path file = Files.createTempFile("cfg", ".txt");
+		Path file2 = Files.createTempFile("cfg", ".txt");
+		try {
+			g.save(file);
+			CFG g2 = CFG.load(file);
+			assertEquals(g.noOfRules(), g2.noOfRules());
+			assertEquals(g.size(), g2.size());
+			g2.save(file2);
+			List<String> rules = Files.readAllLines(file);
+			List<String> rules2 = Files.readAllLines(file2);
+			Collections.sort(rules);
+			Collections.sort(rules2);
+			assertEquals(rules, rules2);
+		} finally {
+			Files.delete(file);
+			Files.delete(file2);
+		}
+	}
+
 }
@@ -13,10 +13,25 @@ public class InsertionEfficiencyTest {
 				RandomCFGGenerator.createRandomCFG(i);
 				totalTime += System.nanoTime() - startTime;
 			}
+			long before = usedMemory();
+			CFG g = RandomCFGGenerator.createRandomCFG(i);
+			long bytes = usedMemory() - before;
 			System.out.println(
 					"No. of inserted rules: " + i + ", Average time: " 
-					+ (totalTime / 1000000 / LOOP_COUNT) + " ms");
+					+ (totalTime / 1000000 / LOOP_COUNT) + " ms, Bytes per rule: "
+					+ (bytes / g.noOfRules()));
 		}
 		System.out.println();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Return the number of bytes used on the heap after garbage collection.
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
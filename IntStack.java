@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+/**
+ * This class is a stack of ints stored in a growing int array, used instead
+ * of recursion (or a Stack<Integer>) in the graph searches of CFG, so deep
+ * grammars need neither a large thread stack nor an object per element.
+ */
+final class IntStack {
+	private int[] elements = new int[16];
+	private int size;
+
+	/**
+	 * Return the number of elements on the stack.
+	 */
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void push(int x) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, 2 * size);
+		}
+		elements[size++] = x;
+	}
+
+	int pop() {
+		return elements[--size];
+	}
+
+	int peek() {
+		return elements[size - 1];
+	}
+
+	/**
+	 * Return the element at index i, counted from the bottom.
+	 */
+	int get(int i) {
+		return elements[i];
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Return a copy of the elements, from the bottom to the top.
+	 */
+	int[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+	/**
+	 * Reverse the order of the elements from index from to the top, so
+	 * elements pushed in order are popped in the same order.
+	 */
+	void reverse(int from) {
+		for (int i = from, j = size - 1; i < j; i++, j--) {
+			int x = elements[i];
+			elements[i] = elements[j];
+			elements[j] = x;
+		}
+	}
+}
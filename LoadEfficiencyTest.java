@@ -0,0 +1,55 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class LoadEfficiencyTest {
+
+	public static void main(String[] args) throws IOException {
+		final int LOOP_COUNT = 15;
+		final int I_MAX = 30000000;
+		System.out.println("Time efficiency test for loading rules from a file:");
+
+		// Test with randomly built rules.
+		Path file = Files.createTempFile("cfg", ".txt");
+		try {
+			for (int i = 64000; i < I_MAX; i *= 2) {
+				RandomCFGGenerator.createRandomCFG(i).save(file);
+				long loadTime = 0;
+				long readerTime = 0;
+				for (int j = 0; j < LOOP_COUNT; j++) {
+					long startTime = System.nanoTime();
+					CFG.load(file);
+					loadTime += System.nanoTime() - startTime;
+					startTime = System.nanoTime();
+					readLines(file);
+					readerTime += System.nanoTime() - startTime;
+				}
+				System.out.println(
+						"No. of rules: " + i + ", Average time: "
+						+ (loadTime / 1000000 / LOOP_COUNT) + " ms, With a reader: "
+						+ (readerTime / 1000000 / LOOP_COUNT) + " ms");
+			}
+		} finally {
+			Files.delete(file);
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Load the given file one String per line, for comparison with load().
+	 */
+	private static CFG readLines(Path file) throws IOException {
+		CFG g = new CFG();
+		try (BufferedReader in = Files.newBufferedReader(file,
+				StandardCharsets.ISO_8859_1)) {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				if (!line.trim().isEmpty()) {
+					g.addRule(line);
+				}
+			}
+		}
+		return g;
+	}
+}
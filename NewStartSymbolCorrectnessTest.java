@@ -42,4 +42,16 @@ public class NewStartSymbolCorrectnessTest {
 		assertFalse(g.containsRule("B -> S"));
 	}
 
+	@Test
+	public void testTakenNames() {
+		CFG g = new CFG();
+		g.addRule("S -> S0S2");
+		g.addRule("S1 -> S00");
+		g.addRule("S3 -> a");
+		g = g.createNewStartSymbol();
+		assertFalse(g.containsRule("S -> S1"));
+		assertTrue(g.containsRule("S -> S4"));
+		assertTrue(g.containsRule("S4 -> S0S2"));
+	}
+
 }
@@ -0,0 +1,68 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class fills a CYK chart in parallel on a ForkJoinPool. Every cell of a
+ * diagonal (i.e. every span of the same length) depends only on cells of
+ * shorter spans, so the cells of one diagonal are filled in parallel, and the
+ * diagonals one after the other.
+ *
+ * The cells of a diagonal are handed out in blocks. A block is only split up
+ * further while it holds more than GRAIN splits, so the first (cheap)
+ * diagonals are filled without forking at all.
+ */
+final class ParallelCYK {
+	// The minimum number of splits (i.e. calls to combine()) in one task.
+	private static final int GRAIN = 1 << 14;
+
+	private final CYKTable t;
+	private final CYKChart chart;
+	private final ForkJoinPool pool;
+
+	ParallelCYK(CYKTable t, CYKChart chart, ForkJoinPool pool) {
+		this.t = t;
+		this.chart = chart;
+		this.pool = pool;
+	}
+
+	/**
+	 * Fill every cell of the chart above the first row.
+	 */
+	void fill() {
+		final int n = chart.n;
+		for (int i = 1; i < n; i++) {
+			if ((long) i * (n - i) <= GRAIN) {
+				t.fillCells(chart, i, 0, n - i);
+			} else {
+				pool.invoke(new DiagonalTask(i, 0, n - i));
+			}
+		}
+	}
+
+	/**
+	 * A block of cells on diagonal i.
+	 */
+	private final class DiagonalTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int i;
+		private final int from;
+		private final int to;
+
+		DiagonalTask(int i, int from, int to) {
+			this.i = i;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if ((long) i * (to - from) <= GRAIN || to - from < 2) {
+				t.fillCells(chart, i, from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new DiagonalTask(i, from, mid),
+						new DiagonalTask(i, mid, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class ParallelCYKCorrectnessTest {
+
+	private CFG createBalancedParanthesisCFG() {
+		CFG g = new CFG();
+		g.addRule("S -> SS");
+		g.addRule("S -> LS1");
+		g.addRule("S -> AA1");
+		g.addRule("S -> a");
+		g.addRule("S1 -> SR");
+		g.addRule("L -> (");
+		g.addRule("R -> )");
+		g.addRule("A -> a");
+		g.addRule("A1 -> AA1");
+		g.addRule("A1 -> a");
+		return g;
+	}
+
+	@Test
+	public void balancedParanthesis() {
+		CFG g = createBalancedParanthesisCFG();
+		g.setParallelismThreshold(0);
+		assertTrue(g.derives("(a)((aa)((aaa))(a))", CFG.Algorithm.PARALLEL_CYK));
+		assertFalse(g.derives("((a)((aa)))((a)((a))", CFG.Algorithm.PARALLEL_CYK));
+		assertFalse(g.derives(")a(", CFG.Algorithm.PARALLEL_CYK));
+	}
+
+	/*
+	 * Long random words of '(', ')' and 'a' should get the same answer from
+	 * the sequential and the parallel algorithm, on a pool of 4 threads.
+	 */
+	@Test
+	public void shouldAgreeWithSequentialCYK() {
+		CFG g = createBalancedParanthesisCFG();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		g.setForkJoinPool(pool);
+		g.setParallelismThreshold(0);
+		Random random = new Random(1);
+		char[] alphabet = "()a".toCharArray();
+		for (int i = 0; i < 40; i++) {
+			StringBuilder word = new StringBuilder("(");
+			int length = random.nextInt(300);
+			for (int k = 0; k < length; k++) {
+				word.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			word.append(")");
+			assertEquals(g.derives(word.toString()),
+					g.derives(word.toString(), CFG.Algorithm.PARALLEL_CYK));
+		}
+		pool.shutdown();
+	}
+
+	/*
+	 * derivesAll() and derivesAllAsStream() should give the answers of
+	 * derives(), in the order of the words.
+	 */
+	@Test
+	public void derivesAllShouldAgreeWithDerives() {
+		CFG g = createBalancedParanthesisCFG();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		g.setExecutor(pool);
+		Random random = new Random(1);
+		char[] alphabet = "()a".toCharArray();
+		List<String> words = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = random.nextInt(12);
+			for (int k = 0; k < length; k++) {
+				word.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			words.add(word.toString());
+		}
+		boolean[] results = g.derivesAll(words);
+		List<Boolean> streamResults = g.derivesAllAsStream(words)
+				.collect(Collectors.toList());
+		assertEquals(words.size(), results.length);
+		assertEquals(words.size(), streamResults.size());
+		for (int i = 0; i < words.size(); i++) {
+			assertEquals(g.derives(words.get(i)), results[i]);
+			assertEquals(g.derives(words.get(i)), streamResults.get(i));
+		}
+		assertEquals(0, g.derivesAll(new ArrayList<String>()).length);
+		pool.shutdown();
+	}
+
+	/*
+	 * Batches of words of the same length are checked 64 at a time by the
+	 * bit-sliced CYK algorithm, including words with unknown symbols.
+	 */
+	@Test
+	public void bitSlicedBatchesShouldAgreeWithDerives() {
+		CFG g = createBalancedParanthesisCFG();
+		Random random = new Random(2);
+		List<String> words = new ArrayList<String>();
+		for (int i = 0; i < 150; i++) {
+			StringBuilder word = new StringBuilder("(");
+			for (int k = 0; k < 18; k++) {
+				word.append(random.nextInt(20) == 0 ? 'b'
+						: random.nextBoolean() ? 'a' : "()".charAt(random.nextInt(2)));
+			}
+			word.append(")");
+			words.add(word.toString());
+			words.add("(" + word + ")");
+		}
+		boolean[] results = g.derivesAll(words);
+		int derivable = 0;
+		for (int i = 0; i < words.size(); i++) {
+			assertEquals(g.derives(words.get(i)), results[i]);
+			derivable += results[i] ? 1 : 0;
+		}
+		assertTrue(derivable > 0);
+	}
+
+}
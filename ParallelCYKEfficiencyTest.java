@@ -0,0 +1,56 @@
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelCYKEfficiencyTest {
+
+	public static void main(String[] args) {
+		final int LOOP_COUNT = 5;
+		final int I_MAX = 4096;
+		final int CORES = Runtime.getRuntime().availableProcessors();
+
+		// The B rules keep the cells from ever holding every binary head, so
+		// every split of every cell is tried.
+		CFG cfg = new CFG();
+		cfg.addRule("S -> AA");
+		cfg.addRule("S -> a");
+		cfg.addRule("A -> a");
+		cfg.addRule("A -> AA");
+		cfg.addRule("B -> BB");
+		cfg.addRule("B -> b");
+		cfg.setParallelismThreshold(0);
+		System.out.println("Time efficiency test of parallel CYK on the "
+				+ "following CFG:");
+		System.out.println(cfg.toString());
+		System.out.println();
+
+		for (int cores = 1; cores <= CORES; cores *= 2) {
+			System.out.println("Test with words containing only 'a' on "
+					+ cores + " core(s)");
+			ForkJoinPool pool = new ForkJoinPool(cores);
+			cfg.setForkJoinPool(pool);
+			for (int i = 256; i <= I_MAX; i *= 2) {
+				StringBuilder word = new StringBuilder();
+				for (int k = 0; k < i; k++) {
+					word.append("a");
+				}
+				long sequentialTime = 0;
+				long parallelTime = 0;
+				for (int j = 0; j < LOOP_COUNT; j++) {
+					long startTime = System.nanoTime();
+					cfg.derives(word.toString());
+					sequentialTime += System.nanoTime() - startTime;
+					startTime = System.nanoTime();
+					cfg.derives(word.toString(), CFG.Algorithm.PARALLEL_CYK);
+					parallelTime += System.nanoTime() - startTime;
+				}
+				System.out.println("Word length: " + i
+						+ ", Average sequential time: "
+						+ (sequentialTime / 1000000 / LOOP_COUNT) + " ms"
+						+ ", Average parallel time: "
+						+ (parallelTime / 1000000 / LOOP_COUNT) + " ms");
+			}
+			pool.shutdown();
+			System.out.println();
+		}
+	}
+
+}
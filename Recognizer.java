@@ -0,0 +1,45 @@
+/**
+ * This class checks if words can be derived from a CFG in CNF, using the CYK
+ * algorithm with a chart that is allocated once, for words up to a maximum
+ * length, and reused for every word. After the first call, checking a word
+ * allocates nothing. A Recognizer is obtained from CFG.recognizer() and uses
+ * the rules the CFG had at that time. It must not be used by several threads
+ * at the same time.
+ */
+public final class Recognizer {
+	private final CYKTable t;
+	private final CYKChart chart;
+	private final boolean derivesEpsilon;
+
+	Recognizer(CYKTable t, int maxWordLength, boolean derivesEpsilon) {
+		this.t = t;
+		this.chart = new CYKChart(maxWordLength, t.w);
+		this.derivesEpsilon = derivesEpsilon;
+	}
+
+	/**
+	 * Check if word can be derived. The word must not be longer than
+	 * maxWordLength().
+	 */
+	public boolean derives(CharSequence word) {
+		final int n = word.length();
+		if (n == 0) {
+			return derivesEpsilon;
+		}
+		chart.reset(n);
+		if (!t.setTerminalCells(word, chart)) {
+			return false;
+		}
+		for (int i = 1; i < n; i++) {
+			t.fillCells(chart, i, 0, n - i);
+		}
+		return t.derivesWord(chart);
+	}
+
+	/**
+	 * Return the maximum length of the words this Recognizer can check.
+	 */
+	public int maxWordLength() {
+		return chart.maxN;
+	}
+}
@@ -0,0 +1,86 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+public class RecognizerEfficiencyTest {
+
+	public static void main(String[] args) {
+		final int LOOP_COUNT = 1000000;
+		final int WORD_LENGTH = 16;
+		final int NO_OF_WORDS = 1024;
+		
+		CFG cfg = new CFG();
+		cfg.addRule("S -> SS");
+		cfg.addRule("S -> LS1");
+		cfg.addRule("S -> LR");
+		cfg.addRule("S1 -> SR");
+		cfg.addRule("L -> (");
+		cfg.addRule("R -> )");
+		System.out.println("Time and allocation test on the following CFG:");
+		System.out.println(cfg.toString());
+		System.out.println();
+
+		Random random = new Random();
+		String[] words = new String[NO_OF_WORDS];
+		for (int i = 0; i < NO_OF_WORDS; i++) {
+			StringBuilder word = new StringBuilder();
+			for (int k = 0; k < WORD_LENGTH; k++) {
+				word.append(random.nextBoolean() ? '(' : ')');
+			}
+			words[i] = word.toString();
+		}
+		Recognizer recognizer = cfg.recognizer(WORD_LENGTH);
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadID = Thread.currentThread().getId();
+
+		// Warm up.
+		int count = 0;
+		for (int j = 0; j < LOOP_COUNT; j++) {
+			if (recognizer.derives(words[j % NO_OF_WORDS])) {
+				count++;
+			}
+			if (cfg.derives(words[j % NO_OF_WORDS])) {
+				count++;
+			}
+		}
+
+		System.out.println("Test with " + LOOP_COUNT + " words of length "
+				+ WORD_LENGTH + " with CFG.derives()");
+		long allocated = threads.getThreadAllocatedBytes(threadID);
+		long startTime = System.nanoTime();
+		for (int j = 0; j < LOOP_COUNT; j++) {
+			if (cfg.derives(words[j % NO_OF_WORDS])) {
+				count++;
+			}
+		}
+		long totalTime = System.nanoTime() - startTime;
+		allocated = threads.getThreadAllocatedBytes(threadID) - allocated;
+		System.out.println("Total time: " + (totalTime / 1000000) + " ms, "
+				+ "Allocated: " + (allocated / LOOP_COUNT) + " bytes per word");
+		System.out.println();
+
+		System.out.println("Test with " + LOOP_COUNT + " words of length "
+				+ WORD_LENGTH + " with Recognizer.derives()");
+		allocated = threads.getThreadAllocatedBytes(threadID);
+		startTime = System.nanoTime();
+		for (int j = 0; j < LOOP_COUNT; j++) {
+			if (recognizer.derives(words[j % NO_OF_WORDS])) {
+				count++;
+			}
+		}
+		totalTime = System.nanoTime() - startTime;
+		allocated = threads.getThreadAllocatedBytes(threadID) - allocated;
+		System.out.println("Total time: " + (totalTime / 1000000) + " ms, "
+				+ "Allocated: " + allocated + " bytes in total");
+		System.out.println("Derivable words: " + count);
+		System.out.println();
+
+		// The measurement itself may allocate a few bytes, but nothing that
+		// grows with the number of words.
+		if (allocated >= LOOP_COUNT) {
+			throw new AssertionError("Recognizer.derives() allocated "
+					+ allocated + " bytes for " + LOOP_COUNT + " words");
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RemovalCorrectnessTest {
+
+	@Test
+	public void test() {
+		CFG g = new CFG();
+		g.addRule("S -> SS");
+		g.addRule("S -> a");
+		g.addRule("A -> SS");
+		assertEquals(8, g.size());
+		assertTrue(g.removeRule("S -> SS"));
+		assertFalse(g.containsRule("S -> SS"));
+		assertTrue(g.containsRule("A -> SS"));
+		assertEquals(5, g.size());
+		assertEquals(2, g.noOfRules());
+		assertFalse(g.removeRule("S -> SS"));
+		assertFalse(g.removeRule("S -> B"));
+		assertFalse(g.removeRule("B -> a"));
+		assertTrue(g.removeRule("A -> SS"));
+		assertTrue(g.removeRule("S -> a"));
+		assertEquals(0, g.size());
+		assertEquals(0, g.noOfRules());
+		g.addRule("S -> SS");
+		assertTrue(g.containsRule("S -> SS"));
+		assertEquals(3, g.size());
+	}
+
+	@Test
+	public void testManyBodies() {
+		CFG g = new CFG();
+		int n = 20000;
+		for (int i = 0; i < n; i++) {
+			g.addRule("S -> " + body(i));
+		}
+		for (int round = 0; round < 3; round++) {
+			for (int i = round % 2; i < n; i += 2) {
+				assertTrue(g.removeRule("S -> " + body(i)));
+			}
+			for (int i = 0; i < n; i++) {
+				assertEquals(i % 2 != round % 2, g.containsRule("S -> " + body(i)));
+			}
+			for (int i = round % 2; i < n; i += 2) {
+				g.addRule("S -> " + body(i));
+			}
+			assertEquals(n, g.noOfRules());
+		}
+		for (int i = 0; i < n; i++) {
+			assertTrue(g.removeRule("S -> " + body(i)));
+		}
+		assertEquals(0, g.size());
+	}
+
+	/**
+	 * Return a body of terminals that is distinct for every i.
+	 */
+	private static String body(int i) {
+		return Integer.toBinaryString(i).replace('0', 'x').replace('1', 'y');
+	}
+
+	@Test
+	public void testRemoveWithSymbolIDs() {
+		CFG g = new CFG();
+		int s = g.nonterminal("S");
+		int a = CFG.terminal('a');
+		g.addRule(s, new int[] {a, s});
+		g.addRule(s, new int[] {CFG.EPSILON});
+		assertTrue(g.derives("aaa", CFG.Algorithm.EARLEY));
+		assertTrue(g.removeRule(s, new int[] {CFG.EPSILON}));
+		assertFalse(g.removeRule(s, new int[] {CFG.EPSILON}));
+		assertFalse(g.derives("aaa", CFG.Algorithm.EARLEY));
+		assertTrue(g.languageIsEmpty());
+		assertEquals(1, g.noOfRules());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRemoveWithBadSymbolID() {
+		CFG g = new CFG();
+		g.removeRule(g.nonterminal("S"), new int[] {1});
+	}
+
+	@Test
+	public void testCycleDoesNotKeepItselfUseful() {
+		CFG g = new CFG();
+		g.addRule("S -> A");
+		g.addRule("A -> B");
+		g.addRule("B -> A");
+		g.addRule("A -> a");
+		g.addRule("B -> bC");
+		g.addRule("C -> c");
+		assertTrue(g.isUseful("C"));
+		g.removeRule("A -> a");
+		assertFalse(g.languageIsEmpty());
+		assertTrue(g.isUseful("A"));
+		g.removeRule("C -> c");
+		assertTrue(g.languageIsEmpty());
+		assertFalse(g.isUseful("A"));
+		assertFalse(g.isUseful("B"));
+		g.addRule("C -> c");
+		assertFalse(g.languageIsEmpty());
+		assertTrue(g.isUseful("B"));
+	}
+
+	@Test
+	public void testOtherRulesKeepSymbolsReachable() {
+		CFG g = new CFG();
+		g.addRule("S -> A");
+		g.addRule("S -> aA");
+		g.addRule("A -> B");
+		g.addRule("B -> b");
+		g.removeRule("S -> A");
+		assertTrue(g.isUseful("B"));
+		g.removeRule("S -> aA");
+		assertFalse(g.isUseful("A"));
+		assertFalse(g.isUseful("B"));
+		g.addRule("S -> aaA");
+		assertTrue(g.isUseful("B"));
+	}
+
+	@Test
+	public void testQueriesFollowRemovals() {
+		CFG g = new CFG();
+		g.addRule("S -> aA");
+		g.addRule("A -> b");
+		g.addRule("A -> aA");
+		assertFalse(g.languageIsEmpty());
+		assertFalse(g.languageIsFinite());
+		assertTrue(g.isUseful("A"));
+		g.removeRule("A -> b");
+		assertTrue(g.languageIsEmpty());
+		assertFalse(g.isUseful("A"));
+		g.addRule("A -> c");
+		assertFalse(g.languageIsEmpty());
+		g.removeRule("A -> aA");
+		assertTrue(g.languageIsFinite());
+		CFG h = g.toCNF();
+		assertTrue(h.derives("ac"));
+		assertFalse(h.derives("aac"));
+	}
+
+	@Test
+	public void testRandomEditsMatchRebuiltGrammar() {
+		Random random = new Random(1);
+		String[] names = {"S", "A", "B", "C"};
+		String[] words = {"", "a", "b", "ab", "ba", "aab", "abab", "bbb"};
+		for (int n = 0; n < 20; n++) {
+			CFG g = new CFG();
+			List<String> present = new ArrayList<String>();
+			for (int k = 0; k < 200; k++) {
+				StringBuilder body = new StringBuilder();
+				for (int i = random.nextInt(3); i >= 0; i--) {
+					int c = random.nextInt(6);
+					body.append(c < 2 ? "ab".charAt(c) + "" : names[c - 2]);
+				}
+				String rule = names[random.nextInt(names.length)] + " -> "
+						+ (random.nextInt(8) == 0 ? "epsilon" : body.toString());
+				if (random.nextInt(3) == 0 && !present.isEmpty()) {
+					rule = present.get(random.nextInt(present.size()));
+				}
+				if (present.contains(rule)) {
+					assertTrue(g.removeRule(rule));
+					present.remove(rule);
+				} else {
+					g.addRule(rule);
+					present.add(rule);
+				}
+				CFG expected = new CFG();
+				for (String r : present) {
+					expected.addRule(r);
+				}
+				assertEquals(sortedRules(expected), sortedRules(g));
+				assertEquals(expected.noOfRules(), g.noOfRules());
+				assertEquals(expected.size(), g.size());
+				assertEquals(expected.languageIsEmpty(), g.languageIsEmpty());
+				for (String name : names) {
+					assertEquals(expected.isUseful(name), g.isUseful(name));
+				}
+				if (k % 10 == 0) {
+					assertEquals(expected.languageIsFinite(), g.languageIsFinite());
+					for (String word : words) {
+						assertEquals(expected.derives(word, CFG.Algorithm.EARLEY),
+								g.derives(word, CFG.Algorithm.EARLEY));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the rules of g, one per element, in sorted order.
+	 */
+	private static List<String> sortedRules(CFG g) {
+		if (g.noOfRules() == 0) {
+			return new ArrayList<String>();
+		}
+		String s = g.toString();
+		String[] rules = s.substring("Rules: ".length(), s.length() - 1).split(", ");
+		Arrays.sort(rules);
+		return Arrays.asList(rules);
+	}
+
+}
@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+public class RemovalEfficiencyTest {
+
+	public static void main(String[] args) {
+		final int LOOP_COUNT = 15;
+		final int I_MAX = 4000000;
+		System.out.println("Time efficiency test for removing rules:");
+
+		System.out.println("\nInserting and then removing every rule:");
+		for (int i = 64000; i <= I_MAX; i *= 2) {
+			ArrayList<String> rules = createRandomRules(i);
+			long insertTime = 0;
+			long removeTime = 0;
+			for (int j = 0; j < LOOP_COUNT; j++) {
+				CFG g = new CFG();
+				long startTime = System.nanoTime();
+				for (String rule : rules) {
+					g.addRule(rule);
+				}
+				insertTime += System.nanoTime() - startTime;
+				startTime = System.nanoTime();
+				for (String rule : rules) {
+					g.removeRule(rule);
+				}
+				removeTime += System.nanoTime() - startTime;
+			}
+			System.out.println("No. of rules: " + rules.size()
+					+ ", Average insertion time: " + (insertTime / 1000000 / LOOP_COUNT)
+					+ " ms, Average removal time: " + (removeTime / 1000000 / LOOP_COUNT)
+					+ " ms.");
+		}
+
+		System.out.println("\nReplacing 10000 rules one at a time, with a query after each:");
+		for (int i = 64000; i <= I_MAX; i *= 2) {
+			ArrayList<String> rules = createRandomRules(i);
+			CFG g = new CFG();
+			for (String rule : rules) {
+				g.addRule(rule);
+			}
+			Random random = new Random(2);
+			long totalTime = 0;
+			for (int j = 0; j < 10000; j++) {
+				int x = random.nextInt(rules.size());
+				String rule = rules.get(x);
+				String replacement = rule + "a";
+				long startTime = System.nanoTime();
+				g.removeRule(rule);
+				g.addRule(replacement);
+				g.containsRule(replacement);
+				totalTime += System.nanoTime() - startTime;
+				rules.set(x, replacement);
+			}
+			System.out.println("No. of rules: " + rules.size() + ", Average time: "
+					+ (totalTime / 10000) + " ns per replacement.");
+		}
+
+		System.out.println("\nRemoving and adding back 10000 rules of a chain "
+				+ "with two links at every step, with languageIsEmpty() after each:");
+		for (int i = 64000; i <= I_MAX; i *= 2) {
+			CFG g = new CFG();
+			g.addRule("S -> S0");
+			for (int k = 0; k < i / 3; k++) {
+				g.addRule("S" + k + " -> S" + (k + 1));
+				g.addRule("S" + k + " -> aS" + (k + 1));
+				g.addRule("S" + k + " -> a");
+			}
+			g.languageIsEmpty();
+			Random random = new Random(3);
+			long removeTime = 0;
+			long addTime = 0;
+			for (int j = 0; j < 10000; j++) {
+				int k = random.nextInt(i / 3);
+				String[] choices = {"S" + k + " -> S" + (k + 1),
+						"S" + k + " -> aS" + (k + 1), "S" + k + " -> a"};
+				String rule = choices[random.nextInt(choices.length)];
+				long startTime = System.nanoTime();
+				g.removeRule(rule);
+				g.languageIsEmpty();
+				removeTime += System.nanoTime() - startTime;
+				startTime = System.nanoTime();
+				g.addRule(rule);
+				g.languageIsEmpty();
+				addTime += System.nanoTime() - startTime;
+			}
+			System.out.println("No. of rules: " + g.noOfRules()
+					+ ", Average removal and query time: " + (removeTime / 10000)
+					+ " ns, Average insertion and query time: " + (addTime / 10000)
+					+ " ns.");
+		}
+	}
+
+	/**
+	 * Return the given number of distinct random rules, built like those of
+	 * RandomCFGGenerator.
+	 */
+	private static ArrayList<String> createRandomRules(int noOfRules) {
+		final char[] nonterminals = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+		final char[] terminals = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+		Random random = new Random(1);
+		CFG g = new CFG();
+		ArrayList<String> rules = new ArrayList<String>();
+		while (rules.size() < noOfRules) {
+			StringBuilder rule = new StringBuilder();
+			rule.append(nonterminals[random.nextInt(nonterminals.length)]);
+			rule.append(" -> ");
+			int bodyLength = random.nextInt(30) + 1;
+			for (int l = 0; l < bodyLength; l++) {
+				if (random.nextBoolean()) {
+					rule.append(terminals[random.nextInt(terminals.length)]);
+				} else {
+					rule.append(nonterminals[random.nextInt(nonterminals.length)]);
+				}
+			}
+			if (!g.containsRule(rule)) {
+				g.addRule(rule);
+				rules.add(rule.toString());
+			}
+		}
+		return rules;
+	}
+}
@@ -52,5 +52,60 @@ public class RemoveEpsilonCorrectnessTest {
 		System.out.println(g.toString());
 	}
 
+	@Test
+	public void bodiesWithTerminalsShouldNotBeNullable() {
+		CFG g = new CFG();
+		g.addRule("S -> AC");
+		g.addRule("A -> aB");
+		g.addRule("B -> epsilon");
+		g.addRule("C -> c");
+		g = g.removeEpsilonRules();
+		assertTrue(g.containsRule("A -> a"));
+		assertFalse(g.containsRule("S -> C"));
+		assertFalse(g.derives("c"));
+	}
+
+	@Test
+	public void nullableChain() {
+		CFG g = new CFG();
+		g.addRule("S -> AB");
+		g.addRule("A -> BB");
+		g.addRule("B -> CC");
+		g.addRule("C -> epsilon");
+		g.addRule("C -> c");
+		g = g.removeEpsilonRules();
+		assertTrue(g.containsRule("S -> A"));
+		assertTrue(g.containsRule("S -> B"));
+		assertTrue(g.containsRule("A -> B"));
+		assertTrue(g.containsRule("B -> C"));
+		assertFalse(g.containsRule("C -> epsilon"));
+	}
 
+	@Test
+	public void indirectlyNullableStartSymbolShouldKeepEpsilon() {
+		CFG g = new CFG();
+		g.addRule("S -> CC");
+		g.addRule("C -> B");
+		g.addRule("B -> epsilon");
+		g = g.removeEpsilonRules();
+		assertTrue(g.containsRule("S -> epsilon"));
+		assertFalse(g.containsRule("B -> epsilon"));
+	}
+
+	@Test
+	public void cnfShouldDeriveEpsilonIfStartSymbolIsNullable() {
+		CFG g = new CFG();
+		g.addRule("S -> CCC");
+		g.addRule("C -> B");
+		g.addRule("B -> epsilon");
+		g.addRule("B -> b");
+		CFG cnf = g.toCNF();
+		for (CFG.Algorithm algorithm : new CFG.Algorithm[] {CFG.Algorithm.CYK,
+				CFG.Algorithm.VALIANT, CFG.Algorithm.SPARSE}) {
+			assertTrue(cnf.derives("", algorithm));
+			assertTrue(cnf.derives("bbb", algorithm));
+			assertFalse(cnf.derives("bbbb", algorithm));
+		}
+		assertTrue(cnf.recognizer(4).derives(""));
+	}
 }
@@ -188,5 +188,39 @@ public class RemoveUnitRulesCorrectnessTest {
 		g = g.removeUnitRules();
 		System.out.println(g.toString());
 	}
-	
+
+	@Test
+	public void testVeryLongChainOfUnitRules() {
+		CFG g = new CFG();
+		int n = 100000;
+		g.addRule("S -> S0");
+		for (int k = 0; k < n; k++) {
+			g.addRule("S" + k + " -> S" + (k + 1));
+			g.addRule("S" + k + " -> a");
+		}
+		g.addRule("S" + n + " -> bS" + n);
+		g = g.removeUnitRules();
+		assertEquals(2 * n + 3, g.noOfRules());
+		assertTrue(g.containsRule("S -> a"));
+		assertTrue(g.containsRule("S -> bS" + n));
+		assertTrue(g.containsRule("S" + (n - 1) + " -> bS" + n));
+		assertFalse(g.containsRule("S" + n + " -> a"));
+	}
+
+	@Test
+	public void testThatGrammarIsNotChanged() {
+		CFG g = new CFG();
+		g.addRule("S -> A");
+		g.addRule("A -> B");
+		g.addRule("B -> S");
+		g.addRule("B -> b");
+		g.addRule("A -> a");
+		String rules = g.toString();
+		CFG h = g.removeUnitRules();
+		assertEquals(rules, g.toString());
+		assertEquals(2, h.noOfRules());
+		assertTrue(h.containsRule("S -> a"));
+		assertTrue(h.containsRule("S -> b"));
+	}
+
 }
@@ -0,0 +1,54 @@
+public class RemoveUnitRulesEfficiencyTest {
+
+	public static void main(String[] args) {
+		final int LOOP_COUNT = 5;
+		final int I_MAX = 4000000;
+		System.out.println("Time efficiency test for removing unit rules:");
+
+		System.out.println("\nTesting a chain of unit rules ending in four bodies:");
+		for (int i = 16000; i <= I_MAX; i *= 2) {
+			CFG g = new CFG();
+			g.addRule("S -> S0");
+			for (int k = 0; k < i; k++) {
+				g.addRule("S" + k + " -> S" + (k + 1));
+			}
+			g.addRule("S" + i + " -> aabc");
+			g.addRule("S" + i + " -> Ab");
+			g.addRule("S" + i + " -> A");
+			g.addRule("S" + i + " -> AaBbAcB");
+			g.addRule("A -> a");
+			g.addRule("B -> b");
+			test(g, LOOP_COUNT);
+		}
+
+		System.out.println("\nTesting a chain of unit rules with a shared body "
+				+ "at every link:");
+		for (int i = 16000; i <= I_MAX; i *= 2) {
+			CFG g = new CFG();
+			g.addRule("S -> S0");
+			for (int k = 0; k < i; k++) {
+				g.addRule("S" + k + " -> S" + (k + 1));
+				g.addRule("S" + k + " -> a");
+			}
+			g.addRule("S" + i + " -> b");
+			test(g, LOOP_COUNT);
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Print the average time of removing the unit rules of g.
+	 */
+	private static void test(CFG g, int loopCount) {
+		long totalTime = 0;
+		int noOfRules = 0;
+		for (int j = 0; j < loopCount; j++) {
+			long startTime = System.nanoTime();
+			noOfRules = g.removeUnitRules().noOfRules();
+			totalTime += System.nanoTime() - startTime;
+		}
+		System.out.println("Size of the CFG: " + g.size() + ", Average time: "
+				+ (totalTime / 1000000 / loopCount) + " ms, Rules without unit rules: "
+				+ noOfRules);
+	}
+}
@@ -16,8 +16,7 @@ public class Sandbox {
 		System.out.println("2: To print the CFG, type 'print'.");
 		System.out.println("3: To empty the CFG, type 'empty'.");
 		System.out.println("4: Convert to CNF by typing 'cnf'.");
-		System.out.print("5: Ask if the CFG derives 'abc' by typing 'abc?'. ");
-		System.out.println("CONVERT TO CNF FIRST!");
+		System.out.println("5: Ask if the CFG derives 'abc' by typing 'abc?'.");
 		System.out.println("6: Remove useless symbols by typing 'simplify'.");
 		System.out.println("7: To check emptiness, type 'emptiness'.");
 		System.out.println("8: To check finiteness, type 'finitess'.");
@@ -25,7 +24,7 @@ public class Sandbox {
 		while (!(word = sc.nextLine()).equals("quit")) {
 			if (word.endsWith("?")) {
 				word = word.substring(0, word.length() - 1);
-				if (cfg.derives(word)) {
+				if (cfg.derives(word, CFG.Algorithm.EARLEY)) {
 					System.out.println("Yes.");
 				} else {
 					System.out.println("No.");
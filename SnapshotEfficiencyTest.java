@@ -0,0 +1,42 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SnapshotEfficiencyTest {
+
+	public static void main(String[] args) throws IOException {
+		final int LOOP_COUNT = 5;
+		final int I_MAX = 2000000;
+		System.out.println("Time efficiency test for restoring grammars in CNF:");
+
+		// Test with randomly built rules. The cold start is loading the text
+		// form of the rules and converting them to CNF again.
+		Path text = Files.createTempFile("cfg", ".txt");
+		Path snapshot = Files.createTempFile("cfg", ".bin");
+		try {
+			for (int i = 64000; i < I_MAX; i *= 2) {
+				RandomCFGGenerator.createRandomCFG(i).save(text);
+				long coldTime = 0;
+				long restoreTime = 0;
+				for (int j = 0; j < LOOP_COUNT; j++) {
+					long startTime = System.nanoTime();
+					FrozenCFG f = CFG.load(text).toCNF().freeze();
+					coldTime += System.nanoTime() - startTime;
+					f.save(snapshot, false);
+					startTime = System.nanoTime();
+					FrozenCFG.load(snapshot);
+					restoreTime += System.nanoTime() - startTime;
+				}
+				System.out.println(
+						"No. of rules: " + i + ", Cold start: "
+						+ (coldTime / 1000000 / LOOP_COUNT) + " ms, Restore: "
+						+ (restoreTime / 1000000 / LOOP_COUNT) + " ms, Snapshot: "
+						+ (Files.size(snapshot) >> 10) + " KB");
+			}
+		} finally {
+			Files.delete(text);
+			Files.delete(snapshot);
+		}
+		System.out.println();
+	}
+}
@@ -0,0 +1,78 @@
+import java.util.Random;
+
+public class SparseChartEfficiencyTest {
+
+	public static void main(String[] args) {
+		final int LOOP_COUNT = 5;
+		final int I_MAX = 2048;
+
+		CFG cfg = new CFG();
+		cfg.addRule("S -> SS");
+		cfg.addRule("S -> LS1");
+		cfg.addRule("S -> AA1");
+		cfg.addRule("S -> a");
+		cfg.addRule("S1 -> SR");
+		cfg.addRule("L -> (");
+		cfg.addRule("R -> )");
+		cfg.addRule("A -> a");
+		cfg.addRule("A1 -> AA1");
+		cfg.addRule("A1 -> a");
+		System.out.println("Time efficiency test of the sparse chart on the "
+				+ "following CFG:");
+		System.out.println(cfg.toString());
+		System.out.println();
+
+		// Most spans of a random word of parentheses derive nothing.
+		System.out.println("Test with words containing random '(', ')' and 'a'");
+		Random random = new Random();
+		char[] chars = "()a".toCharArray();
+		for (int i = 128; i <= I_MAX; i *= 2) {
+			long cykTime = 0;
+			long sparseTime = 0;
+			for (int j = 0; j < LOOP_COUNT; j++) {
+				StringBuilder word = new StringBuilder();
+				for (int k = 0; k < i; k++) {
+					word.append(chars[random.nextInt(chars.length)]);
+				}
+				long startTime = System.nanoTime();
+				cfg.derives(word.toString());
+				cykTime += System.nanoTime() - startTime;
+				startTime = System.nanoTime();
+				cfg.derives(word.toString(), CFG.Algorithm.SPARSE);
+				sparseTime += System.nanoTime() - startTime;
+			}
+			System.out.println("Word length: " + i
+					+ ", Average CYK time: "
+					+ (cykTime / 1000000 / LOOP_COUNT) + " ms"
+					+ ", Average sparse time: "
+					+ (sparseTime / 1000000 / LOOP_COUNT) + " ms");
+		}
+		System.out.println();
+
+		// Every span of a word of only 'a' derives S, A and A1.
+		System.out.println("Test with words containing only 'a'");
+		for (int i = 128; i <= I_MAX / 2; i *= 2) {
+			long cykTime = 0;
+			long sparseTime = 0;
+			for (int j = 0; j < LOOP_COUNT; j++) {
+				StringBuilder word = new StringBuilder();
+				for (int k = 0; k < i; k++) {
+					word.append("a");
+				}
+				long startTime = System.nanoTime();
+				cfg.derives(word.toString());
+				cykTime += System.nanoTime() - startTime;
+				startTime = System.nanoTime();
+				cfg.derives(word.toString(), CFG.Algorithm.SPARSE);
+				sparseTime += System.nanoTime() - startTime;
+			}
+			System.out.println("Word length: " + i
+					+ ", Average CYK time: "
+					+ (cykTime / 1000000 / LOOP_COUNT) + " ms"
+					+ ", Average sparse time: "
+					+ (sparseTime / 1000000 / LOOP_COUNT) + " ms");
+		}
+		System.out.println();
+	}
+
+}
@@ -0,0 +1,202 @@
+import java.util.Arrays;
+
+/**
+ * This class checks if a word can be derived from a CFG in CNF using a sparse,
+ * agenda-driven bottom-up chart. Only the nonempty cells are stored. Whenever
+ * a nonterminal B is added to the cell of a span (i, k), it is combined with
+ * the nonempty spans (k, j) to its right through the pairs with left child B,
+ * and with the nonempty spans (h, i) to its left through the pairs with right
+ * child B. The cost therefore grows with the number of derivable spans and
+ * not with n^3 |G|.
+ */
+final class SparseChartRecognizer {
+	private final CYKTable t;
+	private final int w;
+	// Cell c spans word[cellFrom[c]..cellTo[c]-1] and holds the set of
+	// nonterminals cellNts[c*w..c*w+w-1].
+	private int[] cellFrom = new int[64];
+	private int[] cellTo = new int[64];
+	private long[] cellNts;
+	private int noOfCells;
+	// The cells of the spans starting (ending) at position i.
+	private int[][] spansFrom;
+	private int[] noOfSpansFrom;
+	private int[][] spansTo;
+	private int[] noOfSpansTo;
+	// An open addressing map from (from << 32 | to) to cell index + 1.
+	private long[] keys = new long[128];
+	private int[] values = new int[128];
+	// The agenda of nonterminals added to cells but not yet combined.
+	private int[] agendaNt = new int[64];
+	private int[] agendaCell = new int[64];
+	private int agendaHead;
+	private int agendaTail;
+
+	SparseChartRecognizer(CYKTable t) {
+		this.t = t;
+		this.w = t.w;
+		cellNts = new long[64 * w];
+	}
+
+	/**
+	 * Check if word (which must not be empty) can be derived.
+	 */
+	boolean derives(String word) {
+		final int n = word.length();
+		spansFrom = new int[n + 1][];
+		noOfSpansFrom = new int[n + 1];
+		spansTo = new int[n + 1][];
+		noOfSpansTo = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			long[] terminalNts = t.terminal(word.charAt(i));
+			if (terminalNts == null) {
+				return false;
+			}
+			addAll(terminalNts, 0, i, i + 1);
+		}
+		while (agendaHead < agendaTail) {
+			int B = agendaNt[agendaHead];
+			int c = agendaCell[agendaHead++];
+			combineToTheRight(B, cellFrom[c], cellTo[c]);
+			combineToTheLeft(B, cellFrom[c], cellTo[c]);
+		}
+		int c = find(0, n);
+		return c != -1 && (cellNts[c * w + (t.startSymbolID >>> 6)]
+				& 1L << t.startSymbolID) != 0;
+	}
+
+	/**
+	 * Combine B in the span (i, k) with every nonempty span (k, j).
+	 */
+	private void combineToTheRight(int B, int i, int k) {
+		if (t.pairStart[B] == t.pairStart[B + 1]) {
+			return;
+		}
+		for (int y = 0; y < noOfSpansFrom[k]; y++) {
+			int right = spansFrom[k][y] * w;
+			boolean intersects = false;
+			for (int x = 0; x < w && !intersects; x++) {
+				intersects = (cellNts[right + x] & t.rightMask[B * w + x]) != 0;
+			}
+			if (!intersects) {
+				continue;
+			}
+			int j = cellTo[spansFrom[k][y]];
+			for (int p = t.pairStart[B]; p < t.pairStart[B + 1]; p++) {
+				int C = t.pairRight[p];
+				if ((cellNts[right + (C >>> 6)] & 1L << C) != 0) {
+					addAll(t.pairHeads, p * w, i, j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Combine B in the span (k, j) with every nonempty span (i, k).
+	 */
+	private void combineToTheLeft(int B, int k, int j) {
+		if (t.rightStart[B] == t.rightStart[B + 1]) {
+			return;
+		}
+		for (int y = 0; y < noOfSpansTo[k]; y++) {
+			int left = spansTo[k][y] * w;
+			int i = cellFrom[spansTo[k][y]];
+			for (int z = t.rightStart[B]; z < t.rightStart[B + 1]; z++) {
+				int p = t.pairsByRight[z];
+				int A = t.pairLeft[p];
+				if ((cellNts[left + (A >>> 6)] & 1L << A) != 0) {
+					addAll(t.pairHeads, p * w, i, j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the set of nonterminals nts[offset..offset+w-1] to the cell of the
+	 * span (i, j), and put the ones that are new on the agenda.
+	 */
+	private void addAll(long[] nts, int offset, int i, int j) {
+		int c = find(i, j);
+		if (c == -1) {
+			c = createCell(i, j);
+		}
+		for (int x = 0; x < w; x++) {
+			long bits = nts[offset + x] & ~cellNts[c * w + x];
+			cellNts[c * w + x] |= bits;
+			for (; bits != 0; bits &= bits - 1) {
+				if (agendaTail == agendaNt.length) {
+					agendaNt = Arrays.copyOf(agendaNt, 2 * agendaTail);
+					agendaCell = Arrays.copyOf(agendaCell, 2 * agendaTail);
+				}
+				agendaNt[agendaTail] = (x << 6) + Long.numberOfTrailingZeros(bits);
+				agendaCell[agendaTail++] = c;
+			}
+		}
+	}
+
+	/**
+	 * Create an empty cell for the span (i, j) and return its index.
+	 */
+	private int createCell(int i, int j) {
+		if (noOfCells == cellFrom.length) {
+			cellFrom = Arrays.copyOf(cellFrom, 2 * noOfCells);
+			cellTo = Arrays.copyOf(cellTo, 2 * noOfCells);
+			cellNts = Arrays.copyOf(cellNts, 2 * noOfCells * w);
+		}
+		int c = noOfCells++;
+		cellFrom[c] = i;
+		cellTo[c] = j;
+		if (2 * noOfCells > keys.length) {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new long[2 * oldKeys.length];
+			values = new int[keys.length];
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				if (oldValues[slot] != 0) {
+					int newSlot = slot(oldKeys[slot]);
+					keys[newSlot] = oldKeys[slot];
+					values[newSlot] = oldValues[slot];
+				}
+			}
+		}
+		long key = (long) i << 32 | j;
+		int slot = slot(key);
+		keys[slot] = key;
+		values[slot] = c + 1;
+		spansFrom[i] = append(spansFrom[i], noOfSpansFrom[i]++, c);
+		spansTo[j] = append(spansTo[j], noOfSpansTo[j]++, c);
+		return c;
+	}
+
+	/**
+	 * Return the index of the cell of the span (i, j), or -1 if it is empty.
+	 */
+	private int find(int i, int j) {
+		return values[slot((long) i << 32 | j)] - 1;
+	}
+
+	/**
+	 * Return the slot of key in keys, or the free slot where it belongs.
+	 */
+	private int slot(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 32) & mask;
+		while (values[slot] != 0 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Store value at index in list, growing it if needed, and return it.
+	 */
+	private static int[] append(int[] list, int index, int value) {
+		if (list == null) {
+			list = new int[4];
+		} else if (index == list.length) {
+			list = Arrays.copyOf(list, 2 * index);
+		}
+		list[index] = value;
+		return list;
+	}
+}
@@ -1,5 +1,7 @@
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 public class SplittingRulesCorrectnessTest {
@@ -13,4 +15,106 @@ public class SplittingRulesCorrectnessTest {
 		System.out.println(g.toString());
 	}
 
+	@Test
+	public void newNamesShouldSkipTakenOnes() {
+		CFG g = new CFG();
+		g.addRule("S -> abcd");
+		g.addRule("V0 -> a");
+		g.addRule("V2 -> b");
+		g.addRule("V01 -> c");
+		g = g.splitUpLongRules();
+		assertTrue(g.containsRule("S -> aV1"));
+		assertTrue(g.containsRule("V1 -> bV3"));
+		assertTrue(g.containsRule("V3 -> cd"));
+		assertTrue(g.containsRule("V01 -> c"));
+	}
+
+	@Test
+	public void manyTakenNamesShouldNotOverflowTheStack() {
+		CFG g = new CFG();
+		int n = 200000;
+		for (int k = 0; k < n; k++) {
+			g.addRule("V" + k + " -> a");
+			g.addRule("U" + k + " -> a");
+		}
+		g.addRule("S -> abc");
+		g = g.substituteTerminals().splitUpLongRules();
+		assertTrue(g.containsRule("S -> U" + (n + 95) + "V" + n));
+		assertTrue(g.containsRule("V" + n + " -> U" + (n + 96) + "U" + (n + 97)));
+	}
+
+	@Test
+	public void sharedSubstringsShouldGetOneNonterminal() {
+		CFG g = new CFG();
+		g.addRule("S -> Abcd");
+		g.addRule("A -> Bbcd");
+		g.addRule("B -> bcd");
+		g = g.splitUpLongRules(true);
+		assertEquals(5, g.noOfRules());
+		assertTrue(g.containsRule("V0 -> bc"));
+		assertTrue(g.containsRule("V1 -> V0d"));
+		assertTrue(g.containsRule("S -> AV1"));
+		assertTrue(g.containsRule("A -> BV1"));
+		assertTrue(g.containsRule("B -> V0d"));
+	}
+
+	@Test
+	public void frequentPairsShouldGetOneNonterminal() {
+		CFG g = new CFG();
+		g.addRule("S -> abcdef");
+		g.addRule("S -> xabyabz");
+		g = g.splitUpLongRules(true);
+		assertTrue(g.containsRule("V0 -> ab"));
+		assertEquals(1, countRulesWithBody(g, "ab"));
+	}
+
+	@Test
+	public void sharingShouldKeepTheLanguage() {
+		Random random = new Random(1);
+		String[] names = {"S", "A", "B"};
+		String[] words = new String[31];
+		for (int i = 1; i < 32; i++) {
+			words[i - 1] = Integer.toBinaryString(i).substring(1)
+					.replace('0', 'a').replace('1', 'b');
+		}
+		for (int n = 0; n < 200; n++) {
+			CFG g = new CFG();
+			for (int k = random.nextInt(8); k >= 0; k--) {
+				StringBuilder body = new StringBuilder();
+				for (int i = random.nextInt(6); i >= 0; i--) {
+					int c = random.nextInt(5);
+					body.append(c < 2 ? "ab".charAt(c) + "" : names[c - 2]);
+				}
+				g.addRule(names[random.nextInt(names.length)] + " -> " + body);
+			}
+			CFG split = g.toCNF();
+			CFG shared = g.toCNF(true);
+			assertTrue(shared.isInCNF());
+			for (String word : words) {
+				assertEquals(split.derives(word), shared.derives(word));
+			}
+		}
+	}
+
+	@Test
+	public void sharingShouldWorkWithoutLongBodies() {
+		assertEquals(0, new CFG().splitUpLongRules(true).noOfRules());
+		CFG g = new CFG();
+		g.addRule("S -> ab");
+		assertTrue(g.splitUpLongRules(true).containsRule("S -> ab"));
+	}
+
+	/**
+	 * Return the number of rules of g with the given body.
+	 */
+	private static int countRulesWithBody(CFG g, String body) {
+		int count = 0;
+		for (String rule : g.toString().split("[:,.] ?")) {
+			if (rule.endsWith(" -> " + body)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 }
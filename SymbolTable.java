@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * This class maps the names of the nonterminals of a CFG to their IDs
+ * 0, 1, 2, ... in the order they were added. Names can be looked up as a
+ * slice of any CharSequence, so a rule can be parsed without creating a
+ * String per symbol. Only the name of a new nonterminal is turned into a
+ * String. The map is an open addressing hash table of IDs, and the hash of
+ * every name is kept so that probes rarely compare characters.
+ */
+final class SymbolTable {
+	private String[] names = new String[16];
+	private int[] hashes = new int[16];
+	private int size;
+	// slots[s] is 0 for a free slot, or the ID + 1 of the name stored there.
+	private int[] slots = new int[32];
+
+	/**
+	 * Return the number of nonterminals.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Return the name of the nonterminal with the given ID.
+	 */
+	String get(int ntID) {
+		return names[ntID];
+	}
+
+	/**
+	 * Check if there is a nonterminal with the given name.
+	 */
+	boolean contains(String name) {
+		return find(name, 0, name.length()) != -1;
+	}
+
+	/**
+	 * Return the ID of the nonterminal named s[start..end-1], or -1 if there
+	 * is none.
+	 */
+	int find(CharSequence s, int start, int end) {
+		return slots[slot(s, start, end, hash(s, start, end))] - 1;
+	}
+
+	/**
+	 * Return the ID of the nonterminal named s[start..end-1], adding it if
+	 * it does not already exist.
+	 */
+	int add(CharSequence s, int start, int end) {
+		int hash = hash(s, start, end);
+		int slot = slot(s, start, end, hash);
+		if (slots[slot] != 0) {
+			return slots[slot] - 1;
+		}
+		if (size == names.length) {
+			names = Arrays.copyOf(names, 2 * size);
+			hashes = Arrays.copyOf(hashes, 2 * size);
+		}
+		int ntID = size++;
+		names[ntID] = s.subSequence(start, end).toString();
+		hashes[ntID] = hash;
+		slots[slot] = ntID + 1;
+		if (2 * size > slots.length) {
+			rehash();
+		}
+		return ntID;
+	}
+
+	/**
+	 * Return the names of all nonterminals, indexed by their IDs.
+	 */
+	String[] toArray() {
+		return Arrays.copyOf(names, size);
+	}
+
+	/**
+	 * Reserve the generated names prefix + k (e.g. V0, V1, ...) and return a
+	 * Namespace that hands out the ones not already taken. The names are
+	 * scanned once, so the Namespace costs O(size()) to create and amortized
+	 * constant time per name.
+	 */
+	Namespace namespace(String prefix) {
+		int[] taken = new int[16];
+		int noOfTaken = 0;
+		for (int ntID = 0; ntID < size; ntID++) {
+			int k = suffix(names[ntID], prefix);
+			if (k != -1) {
+				if (noOfTaken == taken.length) {
+					taken = Arrays.copyOf(taken, 2 * noOfTaken);
+				}
+				taken[noOfTaken++] = k;
+			}
+		}
+		taken = Arrays.copyOf(taken, noOfTaken);
+		Arrays.sort(taken);
+		return new Namespace(prefix, taken);
+	}
+
+	/**
+	 * Return k if name is prefix + k for an int k (without leading zeros),
+	 * and -1 otherwise.
+	 */
+	private static int suffix(String name, String prefix) {
+		int length = name.length() - prefix.length();
+		if (length <= 0 || length > 9 || !name.startsWith(prefix)
+				|| length > 1 && name.charAt(prefix.length()) == '0') {
+			return -1;
+		}
+		int k = 0;
+		for (int i = prefix.length(); i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			k = 10 * k + (c - '0');
+		}
+		return k;
+	}
+
+	/**
+	 * The generated names prefix + k that were not in the SymbolTable when
+	 * the Namespace was created, handed out in increasing order of k.
+	 */
+	static final class Namespace {
+		private final String prefix;
+		// The sorted suffixes k of the names that were taken.
+		private final int[] taken;
+		private int next;
+		private int k;
+
+		private Namespace(String prefix, int[] taken) {
+			this.prefix = prefix;
+			this.taken = taken;
+		}
+
+		/**
+		 * Return the unused name prefix + k with the smallest k not handed
+		 * out before.
+		 */
+		String next() {
+			while (next < taken.length && taken[next] <= k) {
+				if (taken[next++] == k) {
+					k++;
+				}
+			}
+			return prefix + k++;
+		}
+	}
+
+	/**
+	 * Return the slot of the given name, or the free slot where it belongs.
+	 */
+	private int slot(CharSequence s, int start, int end, int hash) {
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] != 0 && !equals(slots[slot] - 1, s, start, end, hash)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Check if the nonterminal with the given ID is named s[start..end-1].
+	 */
+	private boolean equals(int ntID, CharSequence s, int start, int end,
+			int hash) {
+		String name = names[ntID];
+		if (hashes[ntID] != hash || name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != s.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Double the hash table.
+	 */
+	private void rehash() {
+		slots = new int[2 * slots.length];
+		int mask = slots.length - 1;
+		for (int ntID = 0; ntID < size; ntID++) {
+			int slot = hashes[ntID] & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = ntID + 1;
+		}
+	}
+
+	private static int hash(CharSequence s, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + s.charAt(i);
+		}
+		hash *= 0x9E3779B9;
+		return hash ^ hash >>> 16;
+	}
+}
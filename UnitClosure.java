@@ -0,0 +1,220 @@
+import java.util.Arrays;
+
+/**
+ * This class is the unit closure of a CFG in binary normal form (2NF), used
+ * by the CYK algorithm to handle unit rules and nullable nonterminals
+ * without removing them, following Lange and Leiss. A derives B in one unit
+ * step if there is a rule A -> X, where B is in X and all the other symbols
+ * of X are nullable, e.g. A -> B, or A -> BC with C nullable. The closure of
+ * B is the set of all A that derive B in zero or more unit steps.
+ *
+ * After the CYK algorithm has filled a cell from the terminal and binary
+ * rules, apply() adds the closure of every nonterminal in it, which is then
+ * the set of all nonterminals deriving the span. The closures are computed
+ * once, on the strongly connected components of the unit steps in
+ * topological order, and stored as bitsets packed into longs, w longs per
+ * set like the cells of the chart. Only nonterminals that some other
+ * nonterminal derives in a unit step get a bitset.
+ */
+final class UnitClosure {
+	final int r;
+	final int w;
+	private final boolean startIsNullable;
+	// The closure of B is rows[rowOf[B]*w..], or just B if rowOf[B] is -1.
+	private final int[] rowOf;
+	private final long[] rows;
+
+	/**
+	 * Compute the unit closure of the rules given in compressed sparse row
+	 * form like in FrozenCFG, over r nonterminals, where isNullable tells
+	 * which nonterminals derive epsilon.
+	 */
+	UnitClosure(int r, int startSymbolID, int[] ruleStart, int[] ruleBody,
+			int[] bodyStart, int[] bodySymbols, boolean[] isNullable) {
+		this.r = r;
+		this.w = (r + 63) >>> 6;
+		this.startIsNullable = isNullable[startSymbolID];
+
+		// The A deriving B in one unit step are parents[parentStart[B]..].
+		int[] parentStart = new int[r + 1];
+		int[] parents = new int[0];
+		for (int pass = 0; pass < 2; pass++) {
+			int[] next = parentStart.clone();
+			for (int a = 0; a < r; a++) {
+				for (int x = ruleStart[a]; x < ruleStart[a + 1]; x++) {
+					int b = ruleBody[x];
+					int notNullable = 0;
+					int last = -1;
+					for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+						int symbolID = bodySymbols[y];
+						if (symbolID < -1 || symbolID >= 0 && !isNullable[symbolID]) {
+							notNullable++;
+							last = symbolID;
+						}
+					}
+					for (int y = bodyStart[b]; y < bodyStart[b + 1]; y++) {
+						int symbolID = bodySymbols[y];
+						if (symbolID >= 0 && (notNullable == 0
+								|| notNullable == 1 && symbolID == last)) {
+							if (pass == 0) {
+								parentStart[symbolID + 1]++;
+							} else {
+								parents[next[symbolID]++] = a;
+							}
+						}
+					}
+				}
+			}
+			if (pass == 0) {
+				for (int ntID = 0; ntID < r; ntID++) {
+					parentStart[ntID + 1] += parentStart[ntID];
+				}
+				parents = new int[parentStart[r]];
+			}
+		}
+
+		int[] componentStart = new int[r + 1];
+		int[] components = new int[r];
+		int[] component = findComponents(parentStart, parents, components,
+				componentStart);
+		rowOf = new int[r];
+		Arrays.fill(rowOf, -1);
+		int noOfRows = 0;
+		for (int ntID = 0; ntID < r; ntID++) {
+			if (parentStart[ntID + 1] > parentStart[ntID]) {
+				rowOf[ntID] = noOfRows++;
+			}
+		}
+		rows = new long[noOfRows * w];
+		// The components are in topological order, every component after
+		// the components of its parents, so their rows are already closed.
+		for (int c = 0; componentStart[c] < r; c++) {
+			int from = componentStart[c];
+			int to = componentStart[c + 1];
+			int row = -1;
+			for (int z = from; z < to && row == -1; z++) {
+				row = rowOf[components[z]];
+			}
+			if (row == -1) {
+				continue;
+			}
+			int offset = row * w;
+			for (int z = from; z < to; z++) {
+				int b = components[z];
+				rows[offset + (b >>> 6)] |= 1L << b;
+				for (int y = parentStart[b]; y < parentStart[b + 1]; y++) {
+					int a = parents[y];
+					if (component[a] == c) {
+						rows[offset + (a >>> 6)] |= 1L << a;
+					} else if (rowOf[a] == -1) {
+						rows[offset + (a >>> 6)] |= 1L << a;
+					} else {
+						for (int x = 0, q = rowOf[a] * w; x < w; x++, q++) {
+							rows[offset + x] |= rows[q];
+						}
+					}
+				}
+			}
+			for (int z = from; z < to; z++) {
+				rowOf[components[z]] = row;
+			}
+		}
+	}
+
+	/**
+	 * Check if the start symbol derives epsilon.
+	 */
+	boolean startIsNullable() {
+		return startIsNullable;
+	}
+
+	/**
+	 * Add to the set at offset cell the closure of every nonterminal in it.
+	 */
+	void apply(long[] cells, int cell) {
+		for (int x = 0; x < w; x++) {
+			for (long bits = cells[cell + x]; bits != 0; bits &= bits - 1) {
+				int b = (x << 6) + Long.numberOfTrailingZeros(bits);
+				if (rowOf[b] == -1) {
+					continue;
+				}
+				for (int y = 0, q = rowOf[b] * w; y < w; y++, q++) {
+					cells[cell + y] |= rows[q];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the strongly connected components of the graph where the parents
+	 * of B are the A deriving B in one unit step, using Tarjan's algorithm
+	 * with explicit stacks. The members of component c are stored in
+	 * components[componentStart[c]..componentStart[c+1]-1], where the
+	 * components are numbered in the order they are found, i.e. every
+	 * component after those of the parents of its members. Return the
+	 * mapping from each nonterminal to its component.
+	 */
+	private int[] findComponents(int[] parentStart, int[] parents,
+			int[] components, int[] componentStart) {
+		int[] component = new int[r];
+		int[] indexes = new int[r];
+		int[] lowLink = new int[r];
+		int[] stack = new int[r];
+		int stackTop = 0;
+		int[] callStack = new int[r];
+		int[] nextParent = new int[r];
+		int callTop = 0;
+		int index = 0;
+		int noOfComponents = 0;
+		int noOfMembers = 0;
+		Arrays.fill(component, -1);
+		Arrays.fill(indexes, -1);
+		for (int root = 0; root < r; root++) {
+			if (indexes[root] != -1) {
+				continue;
+			}
+			indexes[root] = lowLink[root] = index++;
+			stack[stackTop++] = root;
+			callStack[callTop] = root;
+			nextParent[callTop++] = parentStart[root];
+			while (callTop > 0) {
+				int b = callStack[callTop - 1];
+				int y = nextParent[callTop - 1];
+				int a = -1;
+				for (; y < parentStart[b + 1] && a == -1; y++) {
+					a = parents[y];
+					if (indexes[a] != -1) {
+						if (component[a] == -1) {
+							// a is still on the stack.
+							lowLink[b] = Math.min(lowLink[b], indexes[a]);
+						}
+						a = -1;
+					}
+				}
+				nextParent[callTop - 1] = y;
+				if (a != -1) {
+					indexes[a] = lowLink[a] = index++;
+					stack[stackTop++] = a;
+					callStack[callTop] = a;
+					nextParent[callTop++] = parentStart[a];
+					continue;
+				}
+				if (lowLink[b] == indexes[b]) {
+					int member;
+					do {
+						member = stack[--stackTop];
+						component[member] = noOfComponents;
+						components[noOfMembers++] = member;
+					} while (member != b);
+					componentStart[++noOfComponents] = noOfMembers;
+				}
+				callTop--;
+				if (callTop > 0) {
+					int child = callStack[callTop - 1];
+					lowLink[child] = Math.min(lowLink[child], lowLink[b]);
+				}
+			}
+		}
+		return component;
+	}
+}
@@ -0,0 +1,490 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * This class keeps track of the generating and the useful nonterminals of a
+ * CFG while rules are added to and removed from it. A nonterminal is useful
+ * if it is generating and reachable from the start symbol through rules
+ * whose bodies are generating, i.e. if it is kept by removeUselessSymbols().
+ *
+ * Adding rules only ever makes more nonterminals generating or reachable, so
+ * both sets are grown with the counting scheme of FixpointEngine, run
+ * online: every body counts its occurrences of nonterminals that are not
+ * generating, and is listed at each of them, so it can be counted down once
+ * they are. All the additions together take time linear in the size of the
+ * CFG.
+ *
+ * Counts alone cannot tell when a removed rule makes nonterminals useless,
+ * since nonterminals in a cycle can count each other. So every generating
+ * nonterminal also records the body that made it generating, and every
+ * reachable nonterminal the rule that reached it, stamped with the time it
+ * was marked. A record only uses nonterminals with earlier stamps, so the
+ * records never form a cycle. Removing a rule that no record uses changes
+ * nothing. Otherwise a nonterminal that lost its record first looks for
+ * another one that only uses earlier stamps, and is retracted only if there
+ * is none, along with the nonterminals whose records depend on it. The
+ * retracted nonterminals are then derived again from the remaining rules,
+ * like in the DRed algorithm for deductive databases. The time is linear in
+ * the size of the rules around the nonterminals that lost their records.
+ */
+final class UsefulSymbols {
+	private final ArrayList<HashSet<Integer>> rules;
+	private final BodyTable bodies;
+	private boolean[] isGenerating = new boolean[16];
+	private boolean[] isReachable = new boolean[16];
+	// The body that made a generating nonterminal generating, and when.
+	private int[] witness = new int[16];
+	private int[] generatingTime = new int[16];
+	// A reachable nonterminal B was reached through the rule
+	// parentNt[B] -> parentBody[B] at reachingTime[B], or is the start
+	// symbol if parentNt[B] is -1.
+	private int[] parentNt = new int[16];
+	private int[] parentBody = new int[16];
+	private int[] reachingTime = new int[16];
+	private int time;
+	// The number of bodies added so far.
+	private int noOfBodies;
+	// pending[b] is the number of occurrences in body b of nonterminals
+	// that are not generating, so b is generating iff it is 0.
+	private int[] pending = new int[16];
+	// Counts how many times the ID of a removed body has been reused.
+	private int[] generation = new int[16];
+	// The heads of the rules with body b are among
+	// heads[b][0..noOfHeads[b]-1]. Removed rules are only dropped from the
+	// list once staleHeads[b] of them have piled up, so a head can be listed
+	// twice or no longer have the rule.
+	private int[][] heads = new int[16][];
+	private int[] noOfHeads = new int[16];
+	private int[] staleHeads = new int[16];
+	// Marks the heads kept while compacting a list of heads.
+	private int[] seen = new int[16];
+	private int seenMark;
+	// The bodies with an occurrence of A, and the generation of each when it
+	// was listed, are pairs in occurrences[A][0..noOfOccurrences[A]-1].
+	private int[][] occurrences = new int[16][];
+	private int[] noOfOccurrences = new int[16];
+	// A to mark A as generating, or ~A to mark A as reachable.
+	private final IntStack work = new IntStack();
+	// The nonterminals retracted by the rule being removed.
+	private final IntStack retracted = new IntStack();
+	// The bodies that stopped being generating when a rule was removed.
+	private final IntStack lost = new IntStack();
+
+	/**
+	 * Start tracking the given rules, starting from the rules they already
+	 * contain.
+	 */
+	UsefulSymbols(ArrayList<HashSet<Integer>> rules, BodyTable bodies,
+			int startSymbolID) {
+		this.rules = rules;
+		this.bodies = bodies;
+		growNonterminals(rules.size());
+		isReachable[startSymbolID] = true;
+		parentNt[startSymbolID] = -1;
+		parentBody[startSymbolID] = -1;
+		while (noOfBodies < bodies.size()) {
+			addBody(noOfBodies++);
+		}
+		for (int ntID = 0; ntID < rules.size(); ntID++) {
+			for (int bodyID : rules.get(ntID)) {
+				addRule(ntID, bodyID);
+			}
+		}
+	}
+
+	boolean isGenerating(int ntID) {
+		return ntID < isGenerating.length && isGenerating[ntID];
+	}
+
+	boolean isUseful(int ntID) {
+		return isGenerating(ntID) && isReachable[ntID];
+	}
+
+	/**
+	 * Update the sets for the new rule lhsID -> bodyID.
+	 */
+	void addRule(int lhsID, int bodyID) {
+		growNonterminals(rules.size());
+		while (noOfBodies <= bodyID) {
+			addBody(noOfBodies++);
+		}
+		heads[bodyID] = append(heads[bodyID], noOfHeads[bodyID]++, lhsID);
+		if (pending[bodyID] == 0) {
+			markGenerating(lhsID, bodyID);
+			if (isReachable[lhsID]) {
+				reachSymbolsOf(lhsID, bodyID);
+			}
+		}
+		propagate();
+	}
+
+	/**
+	 * Update the sets for the removed rule lhsID -> bodyID. This must be
+	 * called after the rule is removed from the rules, but while the body
+	 * still exists.
+	 */
+	void removeRule(int lhsID, int bodyID) {
+		if (2 * ++staleHeads[bodyID] > noOfHeads[bodyID]) {
+			compactHeads(bodyID);
+		}
+		if (isGenerating[lhsID] && witness[lhsID] == bodyID
+				&& !findWitness(lhsID)) {
+			retractGenerating(lhsID);
+		}
+		unreachChildren(lhsID, bodyID);
+		for (int i = 0; i < lost.size(); i++) {
+			int lostID = lost.get(i);
+			if (pending[lostID] > 0) {
+				for (int y = 0; y < bodies.length(lostID); y++) {
+					int ntID = bodies.symbol(lostID, y);
+					if (ntID >= 0 && isReachable[ntID] && parentBody[ntID] == lostID
+							&& !findParent(ntID)) {
+						unreach(ntID);
+					}
+				}
+			}
+		}
+		lost.clear();
+		retractReachable();
+	}
+
+	/**
+	 * Start over with the body with the given ID, which belonged to a removed
+	 * body and is now handed out again for a new one.
+	 */
+	void resetBody(int bodyID) {
+		if (bodyID >= noOfBodies) {
+			return;
+		}
+		growNonterminals(rules.size());
+		generation[bodyID]++;
+		pending[bodyID] = 0;
+		noOfHeads[bodyID] = 0;
+		staleHeads[bodyID] = 0;
+		addBody(bodyID);
+	}
+
+	/**
+	 * Count the occurrences in the new body of nonterminals that are not
+	 * generating, and list the body at each of its nonterminals.
+	 */
+	private void addBody(int bodyID) {
+		if (bodyID == pending.length) {
+			int length = 2 * bodyID;
+			pending = Arrays.copyOf(pending, length);
+			generation = Arrays.copyOf(generation, length);
+			heads = Arrays.copyOf(heads, length);
+			noOfHeads = Arrays.copyOf(noOfHeads, length);
+			staleHeads = Arrays.copyOf(staleHeads, length);
+		}
+		for (int i = 0; i < bodies.length(bodyID); i++) {
+			int ntID = bodies.symbol(bodyID, i);
+			if (ntID >= 0) {
+				if (!isGenerating[ntID]) {
+					pending[bodyID]++;
+				}
+				int n = noOfOccurrences[ntID];
+				occurrences[ntID] = append(occurrences[ntID], n, bodyID);
+				occurrences[ntID] = append(occurrences[ntID], n + 1,
+						generation[bodyID]);
+				noOfOccurrences[ntID] = n + 2;
+			}
+		}
+	}
+
+	private void propagate() {
+		while (!work.isEmpty()) {
+			int a = work.pop();
+			if (a >= 0) {
+				generatingFound(a);
+			} else {
+				reachableFound(~a);
+			}
+		}
+	}
+
+	/**
+	 * Count down the bodies with an occurrence of the nonterminal a, which
+	 * has become generating, and mark the heads of the bodies that become
+	 * generating.
+	 */
+	private void generatingFound(int a) {
+		int n = compactOccurrences(a);
+		int[] list = occurrences[a];
+		for (int y = 0; y < n; y += 2) {
+			int bodyID = list[y];
+			if (--pending[bodyID] == 0) {
+				for (int z = 0; z < noOfHeads[bodyID]; z++) {
+					int ntID = heads[bodyID][z];
+					if (!hasRule(ntID, bodyID)) {
+						continue;
+					}
+					markGenerating(ntID, bodyID);
+					if (isReachable[ntID]) {
+						reachSymbolsOf(ntID, bodyID);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Mark the nonterminals reached through the generating bodies of the
+	 * nonterminal a, which has become reachable.
+	 */
+	private void reachableFound(int a) {
+		for (int bodyID : rules.get(a)) {
+			if (pending[bodyID] == 0) {
+				reachSymbolsOf(a, bodyID);
+			}
+		}
+	}
+
+	private void markGenerating(int ntID, int bodyID) {
+		if (!isGenerating[ntID]) {
+			isGenerating[ntID] = true;
+			witness[ntID] = bodyID;
+			generatingTime[ntID] = ++time;
+			work.push(ntID);
+		}
+	}
+
+	/**
+	 * Mark the nonterminals of the given body as reachable through the rule
+	 * ntID -> bodyID.
+	 */
+	private void reachSymbolsOf(int ntID, int bodyID) {
+		for (int i = 0; i < bodies.length(bodyID); i++) {
+			int symbolID = bodies.symbol(bodyID, i);
+			if (symbolID >= 0 && !isReachable[symbolID]) {
+				isReachable[symbolID] = true;
+				parentNt[symbolID] = ntID;
+				parentBody[symbolID] = bodyID;
+				reachingTime[symbolID] = ++time;
+				work.push(~symbolID);
+			}
+		}
+	}
+
+	/**
+	 * Retract the nonterminal a, which has lost the body that made it
+	 * generating and has no other witness, and every nonterminal whose body
+	 * depends on it and has no other witness. The bodies that stop being
+	 * generating are pushed on lost. Then mark the retracted nonterminals
+	 * that are still generating through other bodies.
+	 */
+	private void retractGenerating(int a) {
+		isGenerating[a] = false;
+		retracted.push(a);
+		for (int i = 0; i < retracted.size(); i++) {
+			int n = compactOccurrences(retracted.get(i));
+			int[] list = occurrences[retracted.get(i)];
+			for (int y = 0; y < n; y += 2) {
+				int bodyID = list[y];
+				if (pending[bodyID]++ > 0) {
+					continue;
+				}
+				lost.push(bodyID);
+				for (int z = 0; z < noOfHeads[bodyID]; z++) {
+					int ntID = heads[bodyID][z];
+					if (isGenerating[ntID] && witness[ntID] == bodyID
+							&& !findWitness(ntID)) {
+						isGenerating[ntID] = false;
+						retracted.push(ntID);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < retracted.size(); i++) {
+			int ntID = retracted.get(i);
+			for (int bodyID : rules.get(ntID)) {
+				if (pending[bodyID] == 0) {
+					markGenerating(ntID, bodyID);
+					if (isReachable[ntID]) {
+						reachSymbolsOf(ntID, bodyID);
+					}
+					break;
+				}
+			}
+		}
+		retracted.clear();
+		propagate();
+	}
+
+	/**
+	 * Look for another generating body of the generating nonterminal ntID
+	 * whose nonterminals were all marked before it, and make it its witness.
+	 * Return true iff there is one.
+	 */
+	private boolean findWitness(int ntID) {
+		for (int bodyID : rules.get(ntID)) {
+			if (bodyID == witness[ntID] || pending[bodyID] > 0) {
+				continue;
+			}
+			boolean isEarlier = true;
+			for (int i = 0; i < bodies.length(bodyID) && isEarlier; i++) {
+				int symbolID = bodies.symbol(bodyID, i);
+				isEarlier = symbolID < 0
+						|| generatingTime[symbolID] < generatingTime[ntID];
+			}
+			if (isEarlier) {
+				witness[ntID] = bodyID;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Look for another rule, with a generating body, from a reachable
+	 * nonterminal reached before the reachable nonterminal ntID to it, and
+	 * make it its parent. Return true iff there is one.
+	 */
+	private boolean findParent(int ntID) {
+		int n = compactOccurrences(ntID);
+		int[] list = occurrences[ntID];
+		for (int y = 0; y < n; y += 2) {
+			int bodyID = list[y];
+			if (pending[bodyID] > 0) {
+				continue;
+			}
+			for (int z = 0; z < noOfHeads[bodyID]; z++) {
+				int headID = heads[bodyID][z];
+				if (isReachable[headID]
+						&& reachingTime[headID] < reachingTime[ntID]
+						&& (headID != parentNt[ntID] || bodyID != parentBody[ntID])
+						&& hasRule(headID, bodyID)) {
+					parentNt[ntID] = headID;
+					parentBody[ntID] = bodyID;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Unreach the nonterminals that were reached through the rule
+	 * ntID -> bodyID and have no other parent.
+	 */
+	private void unreachChildren(int ntID, int bodyID) {
+		for (int i = 0; i < bodies.length(bodyID); i++) {
+			int symbolID = bodies.symbol(bodyID, i);
+			if (symbolID >= 0 && isReachable[symbolID]
+					&& parentNt[symbolID] == ntID && parentBody[symbolID] == bodyID
+					&& !findParent(symbolID)) {
+				unreach(symbolID);
+			}
+		}
+	}
+
+	private void unreach(int ntID) {
+		isReachable[ntID] = false;
+		retracted.push(ntID);
+	}
+
+	/**
+	 * Retract every nonterminal reached through one of the unreached ones,
+	 * and then mark those still reached through another rule.
+	 */
+	private void retractReachable() {
+		for (int i = 0; i < retracted.size(); i++) {
+			int a = retracted.get(i);
+			for (int bodyID : rules.get(a)) {
+				unreachChildren(a, bodyID);
+			}
+		}
+		for (int i = 0; i < retracted.size(); i++) {
+			int a = retracted.get(i);
+			int n = compactOccurrences(a);
+			int[] list = occurrences[a];
+			for (int y = 0; y < n && !isReachable[a]; y += 2) {
+				int bodyID = list[y];
+				if (pending[bodyID] > 0) {
+					continue;
+				}
+				for (int z = 0; z < noOfHeads[bodyID]; z++) {
+					int ntID = heads[bodyID][z];
+					if (isReachable[ntID] && hasRule(ntID, bodyID)) {
+						reachSymbolsOf(ntID, bodyID);
+						break;
+					}
+				}
+			}
+			propagate();
+		}
+		retracted.clear();
+	}
+
+	/**
+	 * Drop the occurrences of the nonterminal ntID in bodies whose IDs have
+	 * been reused since they were listed, and return the number of ints left
+	 * in its list.
+	 */
+	private int compactOccurrences(int ntID) {
+		int[] list = occurrences[ntID];
+		int n = 0;
+		for (int y = 0; y < noOfOccurrences[ntID]; y += 2) {
+			if (list[y + 1] == generation[list[y]]) {
+				list[n] = list[y];
+				list[n + 1] = list[y + 1];
+				n += 2;
+			}
+		}
+		noOfOccurrences[ntID] = n;
+		return n;
+	}
+
+	private boolean hasRule(int ntID, int bodyID) {
+		return rules.get(ntID).contains(bodyID);
+	}
+
+	/**
+	 * Drop the heads of the given body that no longer have a rule with it,
+	 * or are listed twice.
+	 */
+	private void compactHeads(int bodyID) {
+		int[] list = heads[bodyID];
+		int n = 0;
+		seenMark++;
+		for (int z = 0; z < noOfHeads[bodyID]; z++) {
+			int ntID = list[z];
+			if (seen[ntID] != seenMark && hasRule(ntID, bodyID)) {
+				seen[ntID] = seenMark;
+				list[n++] = ntID;
+			}
+		}
+		noOfHeads[bodyID] = n;
+		staleHeads[bodyID] = 0;
+	}
+
+	private void growNonterminals(int size) {
+		if (size > isGenerating.length) {
+			int length = Math.max(2 * isGenerating.length, size);
+			isGenerating = Arrays.copyOf(isGenerating, length);
+			isReachable = Arrays.copyOf(isReachable, length);
+			witness = Arrays.copyOf(witness, length);
+			generatingTime = Arrays.copyOf(generatingTime, length);
+			parentNt = Arrays.copyOf(parentNt, length);
+			parentBody = Arrays.copyOf(parentBody, length);
+			reachingTime = Arrays.copyOf(reachingTime, length);
+			seen = Arrays.copyOf(seen, length);
+			occurrences = Arrays.copyOf(occurrences, length);
+			noOfOccurrences = Arrays.copyOf(noOfOccurrences, length);
+		}
+	}
+
+	/**
+	 * Store value at index in list, growing it if needed, and return it.
+	 */
+	private static int[] append(int[] list, int index, int value) {
+		if (list == null) {
+			list = new int[2];
+		} else if (index == list.length) {
+			list = Arrays.copyOf(list, 2 * index);
+		}
+		list[index] = value;
+		return list;
+	}
+}
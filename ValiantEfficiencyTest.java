@@ -0,0 +1,47 @@
+public class ValiantEfficiencyTest {
+
+	public static void main(String[] args) {
+		final int LOOP_COUNT = 5;
+		final int I_MAX = 4096;
+
+		// The B rules keep the cells of the CYK chart from ever holding every
+		// binary head, so CYK tries every split of every cell.
+		CFG cfg = new CFG();
+		cfg.addRule("S -> AA");
+		cfg.addRule("S -> a");
+		cfg.addRule("A -> a");
+		cfg.addRule("A -> AA");
+		cfg.addRule("B -> BB");
+		cfg.addRule("B -> b");
+		System.out.println("Crossover test of CYK and Valiant's algorithm on "
+				+ "the following CFG:");
+		System.out.println(cfg.toString());
+		System.out.println();
+
+		System.out.println("Test with words containing only 'a'");
+		for (int i = 64; i <= I_MAX; i *= 2) {
+			StringBuilder word = new StringBuilder();
+			for (int k = 0; k < i; k++) {
+				word.append("a");
+			}
+			long cykTime = 0;
+			long valiantTime = 0;
+			for (int j = 0; j < LOOP_COUNT; j++) {
+				long startTime = System.nanoTime();
+				cfg.derives(word.toString());
+				cykTime += System.nanoTime() - startTime;
+				startTime = System.nanoTime();
+				cfg.derives(word.toString(), CFG.Algorithm.VALIANT);
+				valiantTime += System.nanoTime() - startTime;
+			}
+			System.out.println("Word length: " + i
+					+ ", Average CYK time: "
+					+ (cykTime / 1000 / LOOP_COUNT) + " us"
+					+ ", Average Valiant time: "
+					+ (valiantTime / 1000 / LOOP_COUNT) + " us"
+					+ (valiantTime < cykTime ? " (Valiant wins)" : ""));
+		}
+		System.out.println();
+	}
+
+}
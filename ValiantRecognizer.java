@@ -0,0 +1,206 @@
+import java.util.Arrays;
+
+/**
+ * This class checks if a word can be derived from a CFG in CNF using
+ * Valiant's reduction of CYK to boolean matrix multiplication, in the
+ * formulation of Okhotin ("Parsing by matrix multiplication generalized to
+ * Boolean grammars", 2014).
+ *
+ * For every nonterminal A there is a boolean matrix T[A], where T[A][i][j] is
+ * true iff A derives word[i..j-1]. The matrices are filled block by block, in
+ * an order where each block only needs products of blocks that are already
+ * complete. For every pair (B, C) of a rule A -> BC, the product of the
+ * blocks of T[B] and T[C] is added to T[A]. This executes in O(M(n)) time,
+ * where M(n) is the time of multiplying two n x n boolean matrices.
+ *
+ * The matrices are bit-packed row by row. Blocks of at least 64 columns are
+ * multiplied with the method of Four Russians, 8 rows at a time.
+ */
+final class ValiantRecognizer {
+	private final CYKTable t;
+	private int N;
+	private int W;
+	private long[][] T;
+	private long[] product;
+	private long[] table;
+
+	ValiantRecognizer(CYKTable t) {
+		this.t = t;
+	}
+
+	/**
+	 * Check if word (which must not be empty) can be derived.
+	 */
+	boolean derives(String word) {
+		final int n = word.length();
+		N = Integer.highestOneBit(n) << 1;		// N >= n + 1 and N = 2^k
+		W = Math.max(1, N >>> 6);
+		T = new long[t.r][];					// null means an all-0 matrix
+		product = new long[(N >>> 1) * Math.max(1, N >>> 7)];
+		table = new long[256 * Math.max(1, N >>> 7)];
+		for (int i = 0; i < n; i++) {
+			long[] terminalNts = t.terminal(word.charAt(i));
+			if (terminalNts == null) {
+				return false;
+			}
+			for (int x = 0; x < t.w; x++) {
+				for (long bits = terminalNts[x]; bits != 0; bits &= bits - 1) {
+					int a = (x << 6) + Long.numberOfTrailingZeros(bits);
+					matrix(a)[i * W + ((i + 1) >>> 6)] |= 1L << (i + 1);
+				}
+			}
+		}
+		compute(0, N);
+		long[] S = T[t.startSymbolID];
+		return S != null && (S[n >>> 6] & 1L << n) != 0;
+	}
+
+	/**
+	 * Return the matrix of the nonterminal a, allocating it if needed.
+	 */
+	private long[] matrix(int a) {
+		if (T[a] == null) {
+			T[a] = new long[N * W];
+		}
+		return T[a];
+	}
+
+	/**
+	 * Complete T[i][j] for all l <= i < j < m.
+	 */
+	private void compute(int l, int m) {
+		int mid = (l + m) >>> 1;
+		if (m - l >= 4) {
+			compute(l, mid);
+			compute(mid, m);
+		}
+		complete(l, mid, mid, m);
+	}
+
+	/**
+	 * Complete the block of T[i][j] with l <= i < m and l2 <= j < m2. Every
+	 * product through a k with m <= k < l2 must already be added to it, and
+	 * the blocks above and to the left of it must be complete.
+	 */
+	private void complete(int l, int m, int l2, int m2) {
+		if (m - l == 1) {
+			return;
+		}
+		final int s = (m - l) >>> 1;
+		final int hm = l + s;
+		final int hm2 = l2 + s;
+		complete(hm, m, l2, hm2);
+		multiplyAll(l, hm, l2, s);
+		complete(l, hm, l2, hm2);
+		multiplyAll(hm, l2, hm2, s);
+		complete(hm, m, hm2, m2);
+		multiplyAll(l, hm, hm2, s);
+		multiplyAll(l, l2, hm2, s);
+		complete(l, hm, hm2, m2);
+	}
+
+	/**
+	 * For every rule A -> BC, add the product of the s x s blocks of T[B]
+	 * starting at (a, b) and of T[C] starting at (b, c) to the block of T[A]
+	 * starting at (a, c).
+	 */
+	private void multiplyAll(int a, int b, int c, int s) {
+		for (int B = 0; B < t.r; B++) {
+			if (T[B] == null || t.pairStart[B] == t.pairStart[B + 1]) {
+				continue;
+			}
+			for (int p = t.pairStart[B]; p < t.pairStart[B + 1]; p++) {
+				long[] C = T[t.pairRight[p]];
+				if (C == null || !multiply(T[B], C, a, b, c, s)) {
+					continue;
+				}
+				for (int x = 0; x < t.w; x++) {
+					long bits = t.pairHeads[p * t.w + x];
+					for (; bits != 0; bits &= bits - 1) {
+						int A = (x << 6) + Long.numberOfTrailingZeros(bits);
+						addProduct(matrix(A), a, c, s);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Store the product of the s x s blocks of X starting at (a, b) and of Y
+	 * starting at (b, c) in product, where row i takes max(1, s / 64) longs.
+	 * Return false if the product is all 0.
+	 */
+	private boolean multiply(long[] X, long[] Y, int a, int b, int c, int s) {
+		final int sw = Math.max(1, s >>> 6);
+		Arrays.fill(product, 0, s * sw, 0L);
+		boolean nonZero = false;
+		if (s < 64) {
+			final long mask = (1L << s) - 1;
+			for (int i = 0; i < s; i++) {
+				long xBits = X[(a + i) * W + (b >>> 6)] >>> (b & 63) & mask;
+				long row = 0;
+				for (; xBits != 0; xBits &= xBits - 1) {
+					int k = b + Long.numberOfTrailingZeros(xBits);
+					row |= Y[k * W + (c >>> 6)] >>> (c & 63) & mask;
+				}
+				product[i] = row;
+				nonZero |= row != 0;
+			}
+			return nonZero;
+		}
+		// Four Russians: for every group of 8 rows of the block of Y, build
+		// the OR of each of the 256 subsets of them, and look the subsets up
+		// using 8 bits at a time of the rows of the block of X.
+		for (int g = 0; g < s; g += 8) {
+			final int word = (b + g) >>> 6;
+			final int shift = (b + g) & 63;
+			boolean groupUsed = false;
+			for (int i = 0; i < s && !groupUsed; i++) {
+				groupUsed = (X[(a + i) * W + word] >>> shift & 0xFF) != 0;
+			}
+			if (!groupUsed) {
+				continue;
+			}
+			for (int y = 0; y < sw; y++) {
+				table[y] = 0L;
+			}
+			for (int subset = 1; subset < 256; subset++) {
+				int rest = (subset & (subset - 1)) * sw;
+				int k = b + g + Integer.numberOfTrailingZeros(subset);
+				int yOffset = k * W + (c >>> 6);
+				for (int y = 0; y < sw; y++) {
+					table[subset * sw + y] = table[rest + y] | Y[yOffset + y];
+				}
+			}
+			for (int i = 0; i < s; i++) {
+				int subset = (int) (X[(a + i) * W + word] >>> shift & 0xFF);
+				if (subset != 0) {
+					for (int y = 0; y < sw; y++) {
+						product[i * sw + y] |= table[subset * sw + y];
+					}
+					nonZero = true;
+				}
+			}
+		}
+		return nonZero;
+	}
+
+	/**
+	 * Add product to the s x s block of Z starting at (a, c).
+	 */
+	private void addProduct(long[] Z, int a, int c, int s) {
+		if (s < 64) {
+			for (int i = 0; i < s; i++) {
+				Z[(a + i) * W + (c >>> 6)] |= product[i] << (c & 63);
+			}
+		} else {
+			final int sw = s >>> 6;
+			for (int i = 0; i < s; i++) {
+				int offset = (a + i) * W + (c >>> 6);
+				for (int y = 0; y < sw; y++) {
+					Z[offset + y] |= product[i * sw + y];
+				}
+			}
+		}
+	}
+}